@@ -37,6 +37,7 @@ import org.apache.tools.ant.Project;
 import org.apache.tools.ant.Task;
 import org.apache.tools.ant.types.Path;
 import org.codehaus.mojo.animal_sniffer.SignatureBuilder;
+import org.codehaus.mojo.animal_sniffer.SignatureWriter;
 
 /**
  * @author Kohsuke Kawaguchi
@@ -53,10 +54,34 @@ public class BuildSignaturesTask extends Task {
 
     private Vector<Ignore> excludeClasses = new Vector<>();
 
+    private int formatVersion = SignatureWriter.LEGACY_FORMAT;
+
+    private boolean inheritedMembers;
+
     public void setDestfile(File dest) {
         this.destfile = dest;
     }
 
+    /**
+     * Sets the format of the signature file to write, <code>1</code> (the default) for the legacy format or
+     * <code>2</code> for the compact binary format.
+     *
+     * @since 1.28
+     */
+    public void setFormatVersion(int formatVersion) {
+        this.formatVersion = formatVersion;
+    }
+
+    /**
+     * Sets whether to include the members each class inherits from its super types, requires format version
+     * <code>2</code>.
+     *
+     * @since 1.28
+     */
+    public void setInheritedMembers(boolean inheritedMembers) {
+        this.inheritedMembers = inheritedMembers;
+    }
+
     public void addPath(Path path) {
         paths.add(path);
     }
@@ -86,6 +111,12 @@ public class BuildSignaturesTask extends Task {
         if (paths.size() < 1) {
             throw new BuildException("path not set");
         }
+        if (formatVersion != SignatureWriter.LEGACY_FORMAT && formatVersion != SignatureWriter.COMPACT_FORMAT) {
+            throw new BuildException("unsupported formatVersion " + formatVersion);
+        }
+        if (inheritedMembers && formatVersion != SignatureWriter.COMPACT_FORMAT) {
+            throw new BuildException("inheritedMembers requires formatVersion " + SignatureWriter.COMPACT_FORMAT);
+        }
         for (Signature signature : signatures) {
             if (signature.getSrc() == null) {
                 throw new BuildException("signature src not set");
@@ -117,6 +148,8 @@ public class BuildSignaturesTask extends Task {
 
             SignatureBuilder builder = new SignatureBuilder(
                     inStreams.toArray(new InputStream[0]), new FileOutputStream(destfile), new AntLogger(this));
+            builder.setFormatVersion(formatVersion);
+            builder.setInheritedMembers(inheritedMembers);
             for (Ignore tmp : includeClasses) {
                 builder.addInclude(tmp.getClassName());
             }
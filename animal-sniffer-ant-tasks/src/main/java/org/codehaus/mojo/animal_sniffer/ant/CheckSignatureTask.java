@@ -26,7 +26,6 @@ package org.codehaus.mojo.animal_sniffer.ant;
  */
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -43,6 +42,8 @@ import org.apache.tools.ant.types.Reference;
 import org.apache.tools.ant.types.resources.FileResource;
 import org.codehaus.mojo.animal_sniffer.ClassFileVisitor;
 import org.codehaus.mojo.animal_sniffer.ClassListBuilder;
+import org.codehaus.mojo.animal_sniffer.ClassListCache;
+import org.codehaus.mojo.animal_sniffer.SignatureCache;
 import org.codehaus.mojo.animal_sniffer.SignatureChecker;
 
 /**
@@ -61,6 +62,8 @@ public class CheckSignatureTask extends Task {
 
     private boolean failOnError = true;
 
+    private int threads = 1;
+
     private Vector<Path> paths = new Vector<>();
 
     private Vector<Ignore> ignores = new Vector<>();
@@ -136,6 +139,13 @@ public class CheckSignatureTask extends Task {
         this.failOnError = failOnError;
     }
 
+    /**
+     * @since 1.28
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
     public void execute() throws BuildException {
         validate();
         try {
@@ -154,8 +164,8 @@ public class CheckSignatureTask extends Task {
                 ignoredPackages.add(ignore.getClassName().replace('.', '/'));
             }
 
-            final SignatureChecker signatureChecker =
-                    new SignatureChecker(new FileInputStream(signature), ignoredPackages, new AntLogger(this));
+            final SignatureChecker signatureChecker = new SignatureChecker(
+                    SignatureCache.getInstance().get(signature), ignoredPackages, new AntLogger(this));
 
             final List<File> tmp = new ArrayList<>();
             if (sourcepath != null) {
@@ -167,6 +177,7 @@ public class CheckSignatureTask extends Task {
                 }
             }
             signatureChecker.setSourcePath(tmp);
+            signatureChecker.setThreads(threads);
 
             final Collection<String> annotationTypes = new HashSet<>();
             for (Annotation annotation : annotations) {
@@ -204,6 +215,9 @@ public class CheckSignatureTask extends Task {
         if (paths.size() < 1) {
             throw new BuildException("path not set");
         }
+        if (threads < 1) {
+            throw new BuildException("threads must be positive: " + threads);
+        }
     }
 
     /**
@@ -211,6 +225,7 @@ public class CheckSignatureTask extends Task {
      */
     private Set<String> buildPackageList() throws IOException {
         ClassListBuilder plb = new ClassListBuilder(new AntLogger(this));
+        plb.setCache(ClassListCache.getInstance());
         apply(plb);
         return plb.getPackages();
     }
@@ -26,12 +26,13 @@ package org.codehaus.mojo.animal_sniffer.enforcer;
  */
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 
@@ -47,8 +48,11 @@ import org.apache.maven.model.Dependency;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.shared.artifact.filter.PatternExcludesArtifactFilter;
 import org.apache.maven.shared.artifact.filter.PatternIncludesArtifactFilter;
+import org.codehaus.mojo.animal_sniffer.CheckStamp;
 import org.codehaus.mojo.animal_sniffer.ClassFileVisitor;
 import org.codehaus.mojo.animal_sniffer.ClassListBuilder;
+import org.codehaus.mojo.animal_sniffer.ClassListCache;
+import org.codehaus.mojo.animal_sniffer.SignatureCache;
 import org.codehaus.mojo.animal_sniffer.SignatureChecker;
 import org.codehaus.mojo.animal_sniffer.logging.Logger;
 import org.codehaus.plexus.component.configurator.expression.ExpressionEvaluationException;
@@ -136,7 +140,28 @@ public class CheckSignatureRule implements EnforcerRule {
      */
     private boolean checkTestClasses = false;
 
+    /**
+     * The number of threads to check the classes with.
+     *
+     * //parameter default-value="1"
+     * @since 1.28
+     */
+    private int threads = 1;
+
+    /**
+     * Should the check be skipped if it passed before with the same inputs? The inputs are recorded in
+     * <code>${project.build.directory}/animal-sniffer/enforcer-check.stamp</code>: the signature, the files in the
+     * checked directories, the dependencies and the configuration, the files by their content.
+     *
+     * //parameter default-value="false"
+     * @since 1.28
+     */
+    private boolean skipIfUpToDate = false;
+
     public void execute(EnforcerRuleHelper helper) throws EnforcerRuleException {
+        if (threads < 1) {
+            throw new EnforcerRuleException("threads must be positive: " + threads);
+        }
         try {
             File outputDirectory = new File((String) helper.evaluate("${project.build.outputDirectory}"));
 
@@ -177,6 +202,17 @@ public class CheckSignatureRule implements EnforcerRule {
             org.apache.maven.artifact.Artifact a = signature.createArtifact(artifactFactory);
 
             resolver.resolve(a, project.getRemoteArtifactRepositories(), localRepository);
+
+            CheckStamp stamp = null;
+            if (skipIfUpToDate) {
+                File stampFile = new File(
+                        (String) helper.evaluate("${project.build.directory}"), "animal-sniffer/enforcer-check.stamp");
+                stamp = buildStamp(stampFile, a.getFile(), outputDirectory, testOutputDirectory, project);
+                if (stamp.isUpToDate()) {
+                    helper.getLog().info("Signature check is up to date.");
+                    return;
+                }
+            }
             // just check code from this module
 
             MavenLogger logger = new MavenLogger(helper.getLog());
@@ -193,12 +229,14 @@ public class CheckSignatureRule implements EnforcerRule {
             }
 
             final SignatureChecker signatureChecker =
-                    new SignatureChecker(new FileInputStream(a.getFile()), ignoredPackages, logger);
+                    new SignatureChecker(SignatureCache.getInstance().get(a.getFile()), ignoredPackages, logger);
             signatureChecker.setCheckJars(false); // don't want to descend into jar files that have been copied to
             // the output directory as resources.
 
             signatureChecker.setSourcePath(buildSourcePathList(project));
 
+            signatureChecker.setThreads(threads);
+
             if (annotations != null) {
                 signatureChecker.setAnnotationTypes(Arrays.asList(annotations));
             }
@@ -213,6 +251,14 @@ public class CheckSignatureRule implements EnforcerRule {
                 throw new EnforcerRuleException(
                         "Signature errors found. Verify them and ignore them with the proper annotation if needed.");
             }
+
+            if (stamp != null) {
+                try {
+                    stamp.save();
+                } catch (IOException e) {
+                    logger.warn("Failed to save the signature check stamp", e);
+                }
+            }
         } catch (IOException e) {
             throw new EnforcerRuleException("Failed to check signatures", e);
         } catch (AbstractArtifactResolutionException e) {
@@ -224,6 +270,27 @@ public class CheckSignatureRule implements EnforcerRule {
         }
     }
 
+    private CheckStamp buildStamp(
+            File stampFile, File signatureFile, File outputDirectory, File testOutputDirectory, MavenProject project)
+            throws IOException {
+        Map<String, File> dependencies = new LinkedHashMap<>();
+        for (Object o : project.getArtifacts()) {
+            Artifact artifact = (Artifact) o;
+            dependencies.put(artifactId(artifact) + ':' + artifact.getScope(), artifact.getFile());
+        }
+        return CheckStamp.forModule(
+                stampFile,
+                signatureFile,
+                outputDirectory,
+                checkTestClasses ? testOutputDirectory : null,
+                ignores,
+                annotations,
+                ignoreDependencies,
+                includeDependencies,
+                excludeDependencies,
+                dependencies);
+    }
+
     private static Dependency findMatchingDependency(Signature signature, List<Dependency> dependencies) {
         Dependency match = null;
         for (Dependency d : dependencies) {
@@ -261,6 +328,7 @@ public class CheckSignatureRule implements EnforcerRule {
     private Set<String> buildPackageList(
             File outputDirectory, File testOutputDirectory, MavenProject project, Logger logger) throws IOException {
         ClassListBuilder plb = new ClassListBuilder(logger);
+        plb.setCache(ClassListCache.getInstance());
         apply(plb, outputDirectory, testOutputDirectory, project, logger);
         return plb.getPackages();
     }
@@ -0,0 +1,115 @@
+package org.codehaus.mojo.animal_sniffer.maven;
+
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2009, codehaus.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.codehaus.mojo.animal_sniffer.CacheFiles;
+
+/**
+ * Keeps the boot classpaths detected for java executables, so that the boot classpath detector is run only once per
+ * java executable.
+ * <p>
+ * Java executables are identified by their canonical path, and detected again if their size or modification time
+ * changed. The boot classpaths are kept in memory for the whole build, and can additionally be kept in a directory
+ * to be reused by later builds.
+ *
+ * @since 1.28
+ */
+final class BootClasspathCache {
+    private static final Map<CacheFiles.Key, String> ENTRIES = new HashMap<>();
+
+    private final File directory;
+
+    /**
+     * @param directory the directory to keep the boot classpaths in between builds, or <code>null</code> to keep them
+     *                  in memory only. The in-memory cache is shared by all instances.
+     */
+    BootClasspathCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the boot classpath detected for the given java executable.
+     *
+     * @return the boot classpath as output by the detector, or <code>null</code> if not known.
+     */
+    String get(File javaExecutable) throws IOException {
+        CacheFiles.Key key = CacheFiles.Key.of(javaExecutable);
+        if (!key.getFile().isFile()) {
+            return null;
+        }
+        synchronized (ENTRIES) {
+            String classpath = ENTRIES.get(key);
+            if (classpath != null) {
+                return classpath;
+            }
+        }
+        if (directory == null) {
+            return null;
+        }
+        try {
+            String classpath = new String(Files.readAllBytes(stored(key).toPath()), StandardCharsets.UTF_8);
+            remember(key, classpath);
+            return classpath;
+        } catch (NoSuchFileException e) {
+            return null; // not yet stored
+        }
+    }
+
+    /**
+     * Keeps the boot classpath detected for the given java executable.
+     *
+     * @param classpath the boot classpath as output by the detector.
+     */
+    void put(File javaExecutable, String classpath) throws IOException {
+        CacheFiles.Key key = CacheFiles.Key.of(javaExecutable);
+        if (!key.getFile().isFile()) {
+            return;
+        }
+        remember(key, classpath);
+        if (directory != null) {
+            byte[] bytes = classpath.getBytes(StandardCharsets.UTF_8);
+            CacheFiles.write(stored(key), out -> out.write(bytes));
+        }
+    }
+
+    private static void remember(CacheFiles.Key key, String classpath) {
+        synchronized (ENTRIES) {
+            ENTRIES.put(key, classpath);
+        }
+    }
+
+    private File stored(CacheFiles.Key key) {
+        return new File(directory, key.toFileName(".bootclasspath"));
+    }
+}
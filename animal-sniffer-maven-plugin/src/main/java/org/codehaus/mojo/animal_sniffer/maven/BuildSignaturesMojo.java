@@ -60,6 +60,7 @@ import org.apache.maven.toolchain.ToolchainManager;
 import org.apache.maven.toolchain.ToolchainManagerPrivate;
 import org.apache.maven.toolchain.ToolchainPrivate;
 import org.codehaus.mojo.animal_sniffer.SignatureBuilder;
+import org.codehaus.mojo.animal_sniffer.SignatureWriter;
 import org.codehaus.plexus.util.StringUtils;
 import org.codehaus.plexus.util.cli.CommandLineException;
 import org.codehaus.plexus.util.cli.CommandLineUtils;
@@ -77,6 +78,14 @@ import org.codehaus.plexus.util.cli.Commandline;
         requiresDependencyResolution = ResolutionScope.COMPILE,
         threadSafe = true)
 public class BuildSignaturesMojo extends AbstractMojo {
+
+    /**
+     * The files in the <code>lib</code> directory of Java 8 and earlier runtimes which make up their boot classpath,
+     * in the order of <code>sun.boot.class.path</code>.
+     */
+    private static final String[] BOOT_CLASSPATH = {
+        "resources.jar", "rt.jar", "i18n.jar", "sunrsasign.jar", "jsse.jar", "jce.jar", "charsets.jar", "jfr.jar"
+    };
     /**
      * Should the signatures from java home be included.
      *
@@ -201,6 +210,58 @@ public class BuildSignaturesMojo extends AbstractMojo {
     @Parameter
     private String classifier;
 
+    /**
+     * The format of the generated signatures: <code>1</code> for the legacy format which can be read by all
+     * versions of Animal Sniffer, <code>2</code> for the compact binary format which is smaller and faster to load
+     * but requires Animal Sniffer 1.28 or newer to be read.
+     *
+     * @since 1.28
+     */
+    @Parameter(property = "formatVersion", defaultValue = "1")
+    private int formatVersion;
+
+    /**
+     * Whether to include the members each class inherits from its super classes and interfaces in the generated
+     * signatures, which makes checking against them faster. Requires <code>formatVersion</code> <code>2</code>.
+     *
+     * @since 1.28
+     */
+    @Parameter(property = "inheritedMembers", defaultValue = "false")
+    private boolean inheritedMembers;
+
+    /**
+     * The maximum number of classes to keep in memory while building the signatures, <code>0</code> to keep them
+     * all. Further classes are written to temporary files in the output directory and merged at the end. Writing the
+     * signatures is bounded too, except that <code>formatVersion</code> <code>2</code> keeps every distinct string of
+     * the signatures in memory. Cannot be combined with <code>inheritedMembers</code>.
+     *
+     * @since 1.28
+     */
+    @Parameter(property = "maximumClassesInMemory", defaultValue = "0")
+    private int maximumClassesInMemory;
+
+    /**
+     * The number of threads used to scan the boot classpath, the dependencies and the module classes, each jar file
+     * or directory by its own worker, <code>0</code> to use one thread per available processor. The classes are
+     * merged in the same order whatever the number of threads, so the signatures do not depend on it.
+     *
+     * @since 1.28
+     */
+    @Parameter(property = "animal.sniffer.threads", defaultValue = "0")
+    private int threads;
+
+    /**
+     * The directory to keep the boot classpaths detected for java executables in, so that later builds can reuse
+     * them. The boot classpaths are always kept in memory for the rest of the build, so that the boot classpath
+     * detector runs only once per java executable, which is detected again if its size or modification time changes.
+     * The detector does not run at all for runtimes with a <code>lib/rt.jar</code>, whose boot classpath is made of
+     * the jar files next to it, nor for modular runtime images, which have no boot classpath.
+     *
+     * @since 1.28
+     */
+    @Parameter(property = "animal.sniffer.bootClasspathCacheDirectory")
+    private File bootClasspathCacheDirectory;
+
     /**
      */
     @Component
@@ -267,6 +328,18 @@ public class BuildSignaturesMojo extends AbstractMojo {
     private String jbcpdArtifactId;
 
     public void execute() throws MojoExecutionException, MojoFailureException {
+        if (inheritedMembers && formatVersion != SignatureWriter.COMPACT_FORMAT) {
+            throw new MojoFailureException("inheritedMembers requires formatVersion " + SignatureWriter.COMPACT_FORMAT);
+        }
+        if (maximumClassesInMemory < 0) {
+            throw new MojoFailureException("maximumClassesInMemory must not be negative");
+        }
+        if (inheritedMembers && maximumClassesInMemory > 0) {
+            throw new MojoFailureException("inheritedMembers cannot be combined with maximumClassesInMemory");
+        }
+        if (threads < 0) {
+            throw new MojoFailureException("threads must not be negative");
+        }
         if (includeJavaHome && (javaHomeClassPath == null || javaHomeClassPath.length == 0)) {
             if (javaHome != null) {
                 getLog().warn("Toolchains are ignored, 'javaHome' parameter is set to " + javaHome);
@@ -355,6 +428,10 @@ public class BuildSignaturesMojo extends AbstractMojo {
             outputDirectory.mkdirs();
             SignatureBuilder builder =
                     new SignatureBuilder(getBaseSignatures(), new FileOutputStream(sigFile), new MavenLogger(getLog()));
+            builder.setFormatVersion(formatVersion);
+            builder.setInheritedMembers(inheritedMembers);
+            builder.setMaximumClassesInMemory(maximumClassesInMemory);
+            builder.setTemporaryDirectory(outputDirectory);
 
             if (includeClasses != null) {
                 getLog().info("Restricting signatures to include only the following classes:");
@@ -372,11 +449,16 @@ public class BuildSignaturesMojo extends AbstractMojo {
                 }
             }
 
-            processJavaBootClasspath(builder);
+            List<File> files = new ArrayList<>();
+
+            processJavaBootClasspath(files);
 
-            processModuleDependencies(builder);
+            processModuleDependencies(files);
 
-            processModuleClasses(builder);
+            processModuleClasses(files);
+
+            builder.setThreads(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+            builder.processAll(files);
 
             builder.close();
 
@@ -388,6 +470,33 @@ public class BuildSignaturesMojo extends AbstractMojo {
     }
 
     private boolean detectJavaBootClasspath(String javaExecutable) throws MojoFailureException, MojoExecutionException {
+        File bin = new File(javaExecutable).getAbsoluteFile().getParentFile();
+        File runtimeHome = bin == null ? null : bin.getParentFile();
+        if (runtimeHome != null && new File(runtimeHome, "lib/modules").isFile()) {
+            // a modular runtime image, which has no boot classpath, no need to run the detector to find out
+            getLog().debug("No boot classpath for the runtime image of " + runtimeHome);
+            return handleUndetectedClasspath(javaExecutable);
+        }
+
+        File[] bootClasspath = runtimeHome == null ? null : getBootClasspath(runtimeHome);
+        if (bootClasspath != null) {
+            getLog().info("Using the boot classpath of the runtime in " + runtimeHome);
+            javaHomeClassPath = bootClasspath;
+            return true;
+        }
+
+        BootClasspathCache cache = new BootClasspathCache(bootClasspathCacheDirectory);
+        try {
+            String classpath = cache.get(new File(javaExecutable));
+            if (classpath != null) {
+                getLog().info("Using the boot classpath detected before for " + javaExecutable);
+                setJavaHomeClassPath(classpath);
+                return true;
+            }
+        } catch (IOException e) {
+            getLog().warn("Could not read the cached boot classpath for " + javaExecutable + ": " + e.getMessage());
+        }
+
         getLog().info("Attempting to auto-detect the boot classpath for " + javaExecutable);
         Iterator<Artifact> i = pluginArtifacts.iterator();
         Artifact javaBootClasspathDetector = null;
@@ -413,7 +522,7 @@ public class BuildSignaturesMojo extends AbstractMojo {
         }
 
         try {
-            if (!detectJavaClasspath(javaBootClasspathDetector, javaExecutable)) {
+            if (!detectJavaClasspath(javaBootClasspathDetector, javaExecutable, cache)) {
                 return false;
             }
         } catch (CommandLineException e) {
@@ -422,7 +531,36 @@ public class BuildSignaturesMojo extends AbstractMojo {
         return true;
     }
 
-    private boolean detectJavaClasspath(Artifact javaBootClasspathDetector, String javaExecutable)
+    /**
+     * Returns the boot classpath of a Java 8 or earlier runtime, with the jar files in the order of the default
+     * <code>sun.boot.class.path</code> of the runtime, or <code>null</code> if it is not such a runtime.
+     *
+     * @param runtimeHome the directory of the JDK or JRE the java executable is in.
+     */
+    private static File[] getBootClasspath(File runtimeHome) {
+        File lib = new File(runtimeHome, "jre/lib");
+        if (!new File(lib, "rt.jar").isFile()) {
+            lib = new File(runtimeHome, "lib");
+            if (!new File(lib, "rt.jar").isFile()) {
+                return null;
+            }
+        }
+        List<File> classpath = new ArrayList<>();
+        for (String name : BOOT_CLASSPATH) {
+            File file = new File(lib, name);
+            if (file.exists()) {
+                classpath.add(file);
+            }
+        }
+        File classes = new File(lib.getParentFile(), "classes");
+        if (classes.isDirectory()) {
+            classpath.add(classes);
+        }
+        return classpath.toArray(new File[0]);
+    }
+
+    private boolean detectJavaClasspath(
+            Artifact javaBootClasspathDetector, String javaExecutable, BootClasspathCache cache)
             throws CommandLineException, MojoFailureException {
         final Commandline cli = new Commandline();
         cli.setWorkingDirectory(project.getBasedir().getAbsolutePath());
@@ -439,24 +577,42 @@ public class BuildSignaturesMojo extends AbstractMojo {
             getLog().debug("Stdout: " + stdout.getOutput());
             getLog().debug("Stderr: " + stderr.getOutput());
             getLog().debug("Exit code = " + exitCode);
-            if (skipIfNoJavaHome) {
-                getLog().warn("Skipping signature generation as could not auto-detect java boot classpath for "
-                        + javaExecutable);
-                return false;
-            }
-            if (SystemUtils.isJavaVersionAtLeast(JavaVersion.JAVA_9)) {
-                getLog().warn("Skipping signature generation as this java version has no more java boot classpath "
-                        + javaExecutable);
-                return false;
-            }
-            throw new MojoFailureException("Could not auto-detect java boot classpath for " + javaExecutable);
+            return handleUndetectedClasspath(javaExecutable);
+        }
+        setJavaHomeClassPath(stdout.getOutput());
+        try {
+            cache.put(new File(javaExecutable), stdout.getOutput());
+        } catch (IOException e) {
+            getLog().warn("Could not cache the boot classpath for " + javaExecutable + ": " + e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * Skips the signature generation or fails if the boot classpath of the java executable cannot be detected.
+     *
+     * @return <code>false</code> to skip the signature generation.
+     */
+    private boolean handleUndetectedClasspath(String javaExecutable) throws MojoFailureException {
+        if (skipIfNoJavaHome) {
+            getLog().warn("Skipping signature generation as could not auto-detect java boot classpath for "
+                    + javaExecutable);
+            return false;
         }
-        String[] classpath = StringUtils.split(stdout.getOutput(), File.pathSeparator);
+        if (SystemUtils.isJavaVersionAtLeast(JavaVersion.JAVA_9)) {
+            getLog().warn("Skipping signature generation as this java version has no more java boot classpath "
+                    + javaExecutable);
+            return false;
+        }
+        throw new MojoFailureException("Could not auto-detect java boot classpath for " + javaExecutable);
+    }
+
+    private void setJavaHomeClassPath(String output) {
+        String[] classpath = StringUtils.split(output, File.pathSeparator);
         javaHomeClassPath = new File[classpath.length];
         for (int j = 0; j < classpath.length; j++) {
             javaHomeClassPath[j] = new File(classpath[j]);
         }
-        return true;
     }
 
     private void displayJavaBootClasspath() {
@@ -472,7 +628,7 @@ public class BuildSignaturesMojo extends AbstractMojo {
         }
     }
 
-    private void processModuleDependencies(SignatureBuilder builder) throws IOException {
+    private void processModuleDependencies(List<File> files) {
         PatternIncludesArtifactFilter includesFilter = includeDependencies == null
                 ? null
                 : new PatternIncludesArtifactFilter(Arrays.asList(includeDependencies));
@@ -493,25 +649,25 @@ public class BuildSignaturesMojo extends AbstractMojo {
 
             if (artifact.getArtifactHandler().isAddedToClasspath()) {
                 getLog().info("Parsing signatures from " + artifactId(artifact));
-                builder.process(artifact.getFile());
+                files.add(artifact.getFile());
             }
         }
     }
 
-    private void processModuleClasses(SignatureBuilder builder) throws IOException {
+    private void processModuleClasses(List<File> files) {
         if (includeModuleClasses && classesDirectory.isDirectory()) {
             getLog().info("Parsing signatures from " + classesDirectory);
-            builder.process(classesDirectory);
+            files.add(classesDirectory);
         }
     }
 
-    private void processJavaBootClasspath(SignatureBuilder builder) throws IOException {
+    private void processJavaBootClasspath(List<File> files) {
         if (includeJavaHome && javaHomeClassPath != null && javaHomeClassPath.length > 0) {
             getLog().debug("Parsing signatures java classpath:");
             for (File file : javaHomeClassPath) {
                 if (file.isFile() || file.isDirectory()) {
                     getLog().debug("Processing " + file);
-                    builder.process(file);
+                    files.add(file);
                 } else {
                     getLog().warn("Could not add signatures from boot classpath element: " + file
                             + " as it does not exist.");
@@ -26,15 +26,14 @@ package org.codehaus.mojo.animal_sniffer.maven;
  */
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.model.Dependency;
@@ -49,10 +48,15 @@ import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.shared.artifact.filter.PatternExcludesArtifactFilter;
 import org.apache.maven.shared.artifact.filter.PatternIncludesArtifactFilter;
+import org.codehaus.mojo.animal_sniffer.CheckResultCache;
+import org.codehaus.mojo.animal_sniffer.CheckStamp;
 import org.codehaus.mojo.animal_sniffer.ClassFileVisitor;
 import org.codehaus.mojo.animal_sniffer.ClassListBuilder;
+import org.codehaus.mojo.animal_sniffer.ClassListCache;
 import org.codehaus.mojo.animal_sniffer.Clazz;
+import org.codehaus.mojo.animal_sniffer.SignatureCache;
 import org.codehaus.mojo.animal_sniffer.SignatureChecker;
+import org.codehaus.mojo.animal_sniffer.SignatureIndex;
 import org.codehaus.plexus.util.StringUtils;
 import org.eclipse.aether.RepositorySystem;
 import org.eclipse.aether.RepositorySystemSession;
@@ -175,6 +179,86 @@ public class CheckSignatureMojo extends AbstractMojo {
     @Parameter
     private String[] excludeDependencies = null;
 
+    /**
+     * A directory to keep the names of the classes in dependency jars in, so that later builds do not need to read
+     * the jars again when <code>ignoreDependencies</code> is set. Within a build the class names are always reused,
+     * for example <code>${settings.localRepository}/.cache/animal-sniffer</code> shares them between projects.
+     *
+     * @since 1.28
+     */
+    @Parameter(property = "animal.sniffer.classListCacheDirectory")
+    protected File classListCacheDirectory;
+
+    /**
+     * Should the signature be memory mapped from an index file instead of being loaded completely? The index file is
+     * created in {@link #signatureIndexDirectory} the first time a signature is used; afterwards only the classes
+     * which are actually referenced by the checked classes are decoded.
+     *
+     * @since 1.28
+     */
+    @Parameter(defaultValue = "false", property = "animal.sniffer.useSignatureIndex")
+    protected boolean useSignatureIndex;
+
+    /**
+     * The directory to keep the index files of signatures in, see {@link #useSignatureIndex}.
+     *
+     * @since 1.28
+     */
+    @Parameter(
+            defaultValue = "${project.build.directory}/animal-sniffer",
+            property = "animal.sniffer.signatureIndexDirectory")
+    protected File signatureIndexDirectory;
+
+    /**
+     * Should the results of checking each class be kept in {@link #resultCacheFile}, so that later builds only check
+     * the classes which changed since and report the errors found before for the others? All classes are checked
+     * again when the signature, the ignores (which include the names of the classes of the module and, with
+     * <code>ignoreDependencies</code>, of its dependencies) or the annotations change.
+     *
+     * @since 1.28
+     */
+    @Parameter(defaultValue = "false", property = "animal.sniffer.useResultCache")
+    protected boolean useResultCache;
+
+    /**
+     * The file to keep the results of checking each class in, see {@link #useResultCache}.
+     *
+     * @since 1.28
+     */
+    @Parameter(
+            defaultValue = "${project.build.directory}/animal-sniffer/check-results",
+            property = "animal.sniffer.resultCacheFile")
+    protected File resultCacheFile;
+
+    /**
+     * Should the check be skipped if it passed before with the same inputs? The inputs are recorded in
+     * {@link #stampFile}: the signature, the files in the checked directories, the dependencies and the
+     * configuration, the files by their content.
+     *
+     * @since 1.28
+     */
+    @Parameter(defaultValue = "false", property = "animal.sniffer.skipIfUpToDate")
+    protected boolean skipIfUpToDate;
+
+    /**
+     * The file to record the inputs of the last passed check in, see {@link #skipIfUpToDate}.
+     *
+     * @since 1.28
+     */
+    @Parameter(
+            defaultValue = "${project.build.directory}/animal-sniffer/check.stamp",
+            property = "animal.sniffer.stampFile")
+    protected File stampFile;
+
+    /**
+     * The number of threads to check the classes with. The classes are checked one by one by default, with more
+     * threads the errors are reported sorted by class file once all classes are checked.
+     *
+     * @since 1.28
+     */
+    @Parameter(defaultValue = "1", property = "animal.sniffer.threads")
+    protected int threads;
+
     /**
      * Should signature checking be skipped?
      *
@@ -200,8 +284,6 @@ public class CheckSignatureMojo extends AbstractMojo {
     @Component
     private RepositorySystem repositorySystem;
 
-    static Map<File, Map<String, Clazz>> classes = new ConcurrentHashMap<>();
-
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
         if (skip) {
@@ -209,6 +291,10 @@ public class CheckSignatureMojo extends AbstractMojo {
             return;
         }
 
+        if (threads < 1) {
+            throw new MojoExecutionException("threads must be positive: " + threads);
+        }
+
         if (signature == null || StringUtils.isBlank(signature.getGroupId()) || signature.getGroupId() == "null") {
             getLog().info("Signature version is: " + signature.getVersion());
             return;
@@ -238,6 +324,15 @@ public class CheckSignatureMojo extends AbstractMojo {
 
             File signatureFile = resolveFileForArtifact(signature.createArtifact());
 
+            CheckStamp stamp = null;
+            if (skipIfUpToDate) {
+                stamp = buildStamp(signatureFile);
+                if (stamp.isUpToDate()) {
+                    getLog().info("Signature check is up to date.");
+                    return;
+                }
+            }
+
             // just check code from this module
             final Set<String> ignoredPackages = buildPackageList();
 
@@ -257,16 +352,38 @@ public class CheckSignatureMojo extends AbstractMojo {
 
             signatureChecker.setSourcePath(buildSourcePathList());
 
+            signatureChecker.setThreads(threads);
+
             if (annotations != null) {
                 signatureChecker.setAnnotationTypes(Arrays.asList(annotations));
             }
 
+            CheckResultCache resultCache = null;
+            if (useResultCache) {
+                resultCache = new CheckResultCache(
+                        resultCacheFile,
+                        signatureFile.getCanonicalPath()
+                                + ':'
+                                + signatureFile.length()
+                                + ':'
+                                + signatureFile.lastModified());
+                signatureChecker.setResultCache(resultCache);
+            }
+
             if (checkTestClasses) {
                 signatureChecker.process(new File[] {outputDirectory, testOutputDirectory});
             } else {
                 signatureChecker.process(outputDirectory);
             }
 
+            if (resultCache != null) {
+                try {
+                    resultCache.save();
+                } catch (IOException e) {
+                    getLog().warn("Failed to save the check results to " + resultCacheFile, e);
+                }
+            }
+
             if (signatureChecker.isSignatureBroken()) {
                 if (failOnError) {
                     throw new MojoFailureException(
@@ -277,6 +394,13 @@ public class CheckSignatureMojo extends AbstractMojo {
                 }
             } else {
                 getLog().debug("No signature errors");
+                if (stamp != null) {
+                    try {
+                        stamp.save();
+                    } catch (IOException e) {
+                        getLog().warn("Failed to save " + stampFile, e);
+                    }
+                }
             }
         } catch (IOException e) {
             throw new MojoExecutionException("Failed to check signatures", e);
@@ -285,6 +409,24 @@ public class CheckSignatureMojo extends AbstractMojo {
         }
     }
 
+    private CheckStamp buildStamp(File signatureFile) throws IOException {
+        Map<String, File> dependencies = new LinkedHashMap<>();
+        for (Artifact artifact : (Iterable<Artifact>) project.getArtifacts()) {
+            dependencies.put(BuildSignaturesMojo.artifactId(artifact) + ':' + artifact.getScope(), artifact.getFile());
+        }
+        return CheckStamp.forModule(
+                stampFile,
+                signatureFile,
+                outputDirectory,
+                checkTestClasses ? testOutputDirectory : null,
+                ignores,
+                annotations,
+                ignoreDependencies,
+                includeDependencies,
+                excludeDependencies,
+                dependencies);
+    }
+
     private File resolveFileForArtifact(org.eclipse.aether.artifact.Artifact artifact)
             throws ArtifactResolutionException, MojoExecutionException {
 
@@ -297,12 +439,13 @@ public class CheckSignatureMojo extends AbstractMojo {
         return result.getArtifact().getFile();
     }
 
-    private static Map<String, Clazz> loadClasses(File f) throws IOException {
-        Map<String, Clazz> classes = CheckSignatureMojo.classes.get(f);
-        if (classes == null) {
-            classes = SignatureChecker.loadClasses(new FileInputStream(f));
-            CheckSignatureMojo.classes.putIfAbsent(f, classes);
+    private Map<String, Clazz> loadClasses(File f) throws IOException {
+        if (useSignatureIndex) {
+            return SignatureIndex.forSignature(f, signatureIndexDirectory);
         }
+        SignatureCache cache = SignatureCache.getInstance();
+        Map<String, Clazz> classes = cache.get(f);
+        getLog().debug(cache.toString());
         return classes;
     }
 
@@ -339,6 +482,10 @@ public class CheckSignatureMojo extends AbstractMojo {
      */
     private Set<String> buildPackageList() throws IOException {
         ClassListBuilder plb = new ClassListBuilder(new MavenLogger(getLog()));
+        plb.setCache(
+                classListCacheDirectory == null
+                        ? ClassListCache.getInstance()
+                        : new ClassListCache(classListCacheDirectory));
         apply(plb);
         return plb.getPackages();
     }
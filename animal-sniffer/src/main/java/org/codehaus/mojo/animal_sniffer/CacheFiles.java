@@ -0,0 +1,140 @@
+package org.codehaus.mojo.animal_sniffer;
+
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2008 Kohsuke Kawaguchi and codehaus.org.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Helpers for the files that caches keep between builds, which may be read and written by several builds at once.
+ *
+ * @since 1.28
+ */
+public final class CacheFiles {
+    /**
+     * Writes the content of a file.
+     */
+    public interface Content {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private CacheFiles() {}
+
+    /**
+     * Writes a file, creating its directory if needed. The content is written to a temporary file next to it first,
+     * which is then moved over the file, atomically if the file system supports it, so that a build reading the file
+     * at the same time never sees it partially written.
+     */
+    public static void write(File file, Content content) throws IOException {
+        Path target = file.toPath().toAbsolutePath();
+        Files.createDirectories(target.getParent());
+        Path tmp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+                content.writeTo(out);
+            }
+            try {
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Identifies a version of a file by its canonical path, size and modification time, as the key of what a cache
+     * derived from the file. A changed file gets another key, so whatever was derived from it before is not used.
+     */
+    public static final class Key {
+        private final File file;
+
+        private final long length;
+
+        private final long lastModified;
+
+        private Key(File file) {
+            this.file = file;
+            this.length = file.length();
+            this.lastModified = file.lastModified();
+        }
+
+        /**
+         * Returns the key of the current version of the given file.
+         */
+        public static Key of(File file) throws IOException {
+            return new Key(file.getCanonicalFile());
+        }
+
+        /**
+         * Returns the canonical file.
+         */
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * Returns the name of a file to keep what was derived from this version of the file in, made of the name,
+         * a hash of the path, the size and the modification time of the file, followed by the given suffix.
+         */
+        public String toFileName(String suffix) {
+            return file.getName()
+                    + '-'
+                    + Integer.toHexString(file.getPath().hashCode())
+                    + '-'
+                    + Long.toHexString(length)
+                    + '-'
+                    + Long.toHexString(lastModified)
+                    + suffix;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return file.equals(other.file) && length == other.length && lastModified == other.lastModified;
+        }
+
+        @Override
+        public int hashCode() {
+            return (file.hashCode() * 31 + Long.hashCode(length)) * 31 + Long.hashCode(lastModified);
+        }
+
+        @Override
+        public String toString() {
+            return toFileName("");
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package org.codehaus.mojo.animal_sniffer;
+
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2008 Kohsuke Kawaguchi and codehaus.org.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the errors found in each class file between builds, so that {@link SignatureChecker} only needs to check
+ * the class files which changed since.
+ * <p>
+ * The results are looked up by the name of the class file and are only used if the key still matches, which the
+ * checker computes from the content of the class file, its own configuration (ignores, annotations, source path and
+ * the ignored outer classes and methods) and the configuration given here, which has to identify the signature the
+ * classes are checked against. Ignores naming the checked classes themselves only count for the classes referring to
+ * them, so adding or removing a class does not invalidate every result. Results of class files which were not checked again are dropped when saving. A file
+ * which cannot be read, or was written by another version, is treated as empty and replaced by the next save.
+ *
+ * @see SignatureChecker#setResultCache(CheckResultCache)
+ * @since 1.28
+ */
+public final class CheckResultCache {
+    private static final int MAGIC = 0x41534352; // "ASCR"
+
+    private static final int VERSION = 1;
+
+    private final File file;
+
+    private final String configuration;
+
+    private Map<String, CachedResult> stored;
+
+    private final Map<String, CachedResult> results = new ConcurrentHashMap<>();
+
+    /**
+     * @param file          the file to keep the results in.
+     * @param configuration identifies everything besides the class files and the settings of the checker the results
+     *                      depend on, like the signature.
+     */
+    public CheckResultCache(File file, String configuration) {
+        this.file = file;
+        this.configuration = configuration;
+    }
+
+    String getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * Returns the errors found in the class file the last time it was checked with the same key, or
+     * <code>null</code> if not known.
+     */
+    List<String> get(String name, byte[] key) {
+        CachedResult result = load().get(name);
+        if (result == null || !Arrays.equals(result.key, key)) {
+            return null;
+        }
+        results.put(name, result);
+        return result.errors;
+    }
+
+    void put(String name, byte[] key, List<String> errors) {
+        results.put(name, new CachedResult(key, Collections.unmodifiableList(new ArrayList<>(errors))));
+    }
+
+    private synchronized Map<String, CachedResult> load() {
+        if (stored == null) {
+            stored = new ConcurrentHashMap<>();
+            try (InputStream is = Files.newInputStream(file.toPath());
+                    DataInputStream in = new DataInputStream(new BufferedInputStream(is))) {
+                if (in.readInt() == MAGIC && in.readInt() == VERSION) {
+                    int count = in.readInt();
+                    for (int i = 0; i < count; i++) {
+                        String name = in.readUTF();
+                        byte[] key = new byte[in.readUnsignedByte()];
+                        in.readFully(key);
+                        int errorCount = in.readInt();
+                        List<String> errors = new ArrayList<>();
+                        for (int j = 0; j < errorCount; j++) {
+                            errors.add(in.readUTF());
+                        }
+                        stored.put(name, new CachedResult(key, Collections.unmodifiableList(errors)));
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                // not yet saved, cut short or otherwise unreadable; check everything again, saving replaces the file
+                stored.clear();
+            }
+        }
+        return stored;
+    }
+
+    /**
+     * Writes the results of the class files checked since this cache was created to the file.
+     */
+    public void save() throws IOException {
+        CacheFiles.write(file, os -> {
+            DataOutputStream out = new DataOutputStream(os);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(results.size());
+            for (Map.Entry<String, CachedResult> entry : results.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeByte(entry.getValue().key.length);
+                out.write(entry.getValue().key);
+                out.writeInt(entry.getValue().errors.size());
+                for (String error : entry.getValue().errors) {
+                    out.writeUTF(error);
+                }
+            }
+            out.flush();
+        });
+    }
+
+    private static final class CachedResult {
+        private final byte[] key;
+
+        private final List<String> errors;
+
+        CachedResult(byte[] key, List<String> errors) {
+            this.key = key;
+            this.errors = errors;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package org.codehaus.mojo.animal_sniffer;
+
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2008 Kohsuke Kawaguchi and codehaus.org.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Records what a signature check depended on, so that the check can be skipped as long as none of it changed.
+ * <p>
+ * The inputs are added in a fixed order: configuration values as strings, and files and directories by their path
+ * and content, so that a file rewritten with the same size within the resolution of the modification time is still
+ * noticed. The digest of the inputs is compared with the one in the stamp file, which should only be
+ * {@link #save() saved} once a check passed.
+ *
+ * @since 1.28
+ */
+public final class CheckStamp {
+    private final File file;
+
+    private final MessageDigest digest;
+
+    private final byte[] buffer = new byte[8192];
+
+    private String value;
+
+    /**
+     * @param file the stamp file.
+     */
+    public CheckStamp(File file) {
+        this.file = file;
+        this.digest = newDigest();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every Java platform supports SHA-256
+        }
+    }
+
+    /**
+     * Creates the stamp of a check of the classes of a module against a signature, as done by the Maven plugin and
+     * the enforcer rule.
+     *
+     * @param file                the stamp file.
+     * @param signatureFile       the signature.
+     * @param outputDirectory     the directory of the classes of the module.
+     * @param testOutputDirectory the directory of the test classes of the module, or <code>null</code> if they are
+     *                            not checked.
+     * @param ignores             the classes to ignore, may be <code>null</code>.
+     * @param annotations         the annotations marking the code to ignore, may be <code>null</code>.
+     * @param ignoreDependencies  whether the classes of the dependencies are ignored.
+     * @param includeDependencies the dependencies to ignore the classes of, may be <code>null</code>.
+     * @param excludeDependencies the dependencies not to ignore the classes of, may be <code>null</code>.
+     * @param dependencies        the files of the dependencies, by their identifier and scope, in classpath order.
+     */
+    public static CheckStamp forModule(
+            File file,
+            File signatureFile,
+            File outputDirectory,
+            File testOutputDirectory,
+            String[] ignores,
+            String[] annotations,
+            boolean ignoreDependencies,
+            String[] includeDependencies,
+            String[] excludeDependencies,
+            Map<String, File> dependencies)
+            throws IOException {
+        CheckStamp stamp = new CheckStamp(file);
+        stamp.addFile(signatureFile);
+        stamp.addDirectory(outputDirectory);
+        if (testOutputDirectory != null) {
+            stamp.addDirectory(testOutputDirectory);
+        }
+        stamp.add(Boolean.toString(testOutputDirectory != null));
+        stamp.add(ignores);
+        stamp.add(annotations);
+        stamp.add(Boolean.toString(ignoreDependencies));
+        stamp.add(includeDependencies);
+        stamp.add(excludeDependencies);
+        for (Map.Entry<String, File> dependency : dependencies.entrySet()) {
+            stamp.add(dependency.getKey());
+            stamp.addFile(dependency.getValue());
+        }
+        return stamp;
+    }
+
+    /**
+     * Adds a configuration value, <code>null</code> is allowed.
+     */
+    public void add(String value) {
+        update(value == null ? "\u0000null" : value);
+    }
+
+    /**
+     * Adds configuration values, <code>null</code> is allowed.
+     */
+    public void add(String[] values) {
+        if (values == null) {
+            add((String) null);
+            return;
+        }
+        update(Integer.toString(values.length));
+        for (String value : values) {
+            add(value);
+        }
+    }
+
+    /**
+     * Adds a file by its path and content, or a directory like {@link #addDirectory(File)}. <code>null</code> and
+     * missing files are allowed.
+     */
+    public void addFile(File file) throws IOException {
+        if (file == null) {
+            add((String) null);
+        } else if (file.isDirectory()) {
+            addDirectory(file);
+        } else {
+            update(file.getAbsolutePath());
+            if (file.isFile()) {
+                addContent(file);
+            } else {
+                update("-");
+            }
+        }
+    }
+
+    /**
+     * Adds a directory by its path and the relative paths and contents of all the files below it.
+     */
+    public void addDirectory(File directory) throws IOException {
+        update(directory.getAbsolutePath());
+        addFiles(directory, "");
+    }
+
+    private void addFiles(File directory, String prefix) throws IOException {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            update("-");
+            return;
+        }
+        Arrays.sort(files);
+        for (File f : files) {
+            if (f.isDirectory()) {
+                addFiles(f, prefix + f.getName() + '/');
+            } else {
+                update(prefix + f.getName());
+                addContent(f);
+            }
+        }
+        update("");
+    }
+
+    private void addContent(File file) throws IOException {
+        MessageDigest content = newDigest();
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                content.update(buffer, 0, n);
+            }
+        }
+        update(toHex(content.digest()));
+    }
+
+    private void update(String value) {
+        if (this.value != null) {
+            throw new IllegalStateException("The digest of " + file + " was already computed");
+        }
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private String value() {
+        if (value == null) {
+            value = toHex(digest.digest());
+        }
+        return value;
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder b = new StringBuilder();
+        for (byte x : bytes) {
+            b.append(Character.forDigit((x >> 4) & 0xf, 16)).append(Character.forDigit(x & 0xf, 16));
+        }
+        return b.toString();
+    }
+
+    /**
+     * Returns whether the stamp file records the same inputs. No inputs can be added afterwards.
+     */
+    public boolean isUpToDate() throws IOException {
+        try {
+            return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8)
+                    .trim()
+                    .equals(value());
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Records the inputs in the stamp file. No inputs can be added afterwards.
+     */
+    public void save() throws IOException {
+        byte[] bytes = value().getBytes(StandardCharsets.UTF_8);
+        CacheFiles.write(file, out -> out.write(bytes));
+    }
+}
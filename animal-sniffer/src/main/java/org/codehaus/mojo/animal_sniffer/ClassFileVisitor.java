@@ -25,6 +25,8 @@ package org.codehaus.mojo.animal_sniffer;
  *
  */
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -40,15 +42,23 @@ import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
+import java.util.regex.Pattern;
 
 import org.codehaus.mojo.animal_sniffer.logging.Logger;
 import org.codehaus.mojo.animal_sniffer.logging.PrintWriterLogger;
+import org.objectweb.asm.ClassReader;
 
 /**
  * @author Kohsuke Kawaguchi
  */
 public abstract class ClassFileVisitor {
 
+    /**
+     * The number of class files not selected by their location which are read to make sure the classes of a jar file
+     * or directory are stored under their names, before skipping the rest without reading them.
+     */
+    private static final int SAMPLES = 8;
+
     protected final Logger logger;
 
     protected ClassFileVisitor() {
@@ -76,13 +86,7 @@ public abstract class ClassFileVisitor {
      * Multi-arg version of {@link #process(File)}.
      */
     public void process(File[] files) throws IOException {
-        Arrays.sort(files, (f1, f2) -> {
-            String n1 = f1.getName();
-            String n2 = f2.getName();
-            // Ensure that outer classes are visited before inner classes:
-            int diff = n1.length() - n2.length();
-            return diff != 0 ? diff : n1.compareTo(n2);
-        });
+        Arrays.sort(files, (f1, f2) -> compareNames(f1.getName(), f2.getName()));
         for (File f : files) {
             process(f);
         }
@@ -113,6 +117,24 @@ public abstract class ClassFileVisitor {
      * @param path Directory (or other Path like {@code Paths.get(URI.create("jrt:/modules"))}) full of class files
      */
     public void process(Path path) throws IOException {
+        process(path, path);
+    }
+
+    /**
+     * Same as {@link #process(Path)}, with the class files below <code>path</code> named after their location
+     * relative to <code>root</code> when asking whether they are {@link #isSelected(String) selected}. Below
+     * <code>jrt:/modules</code> the first directory is the module and not part of the name.
+     *
+     * @param path the directory to process.
+     * @param root the directory of the default package, <code>path</code> itself or one of its parents.
+     * @since 1.28
+     */
+    protected void process(Path path, Path root) throws IOException {
+        final boolean modules = "jrt".equals(root.getFileSystem().provider().getScheme())
+                && root.getNameCount() == 1
+                && root.getFileName().toString().equals("modules");
+        final String separator = root.getFileSystem().getSeparator();
+        final Layout layout = new Layout();
         Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
 
             final SortedSet<Path> files = new TreeSet<>();
@@ -133,9 +155,12 @@ public abstract class ClassFileVisitor {
                     throw exc;
                 }
                 for (final Path file : files) {
-                    try (final InputStream inputStream = Files.newInputStream(file)) {
-                        process(file.toString(), inputStream);
+                    Path relative = root.relativize(file);
+                    if (modules && relative.getNameCount() > 1) {
+                        relative = relative.subpath(1, relative.getNameCount());
                     }
+                    String className = toClassName(relative.toString(), separator);
+                    layout.process(file.toString(), className, () -> Files.newInputStream(file));
                 }
                 files.clear();
                 return FileVisitResult.CONTINUE;
@@ -158,12 +183,7 @@ public abstract class ClassFileVisitor {
 
     protected void processJarFile(File file) throws IOException {
         try (JarFile jar = new JarFile(file)) {
-            SortedSet<JarEntry> entries = new TreeSet<>((e1, e2) -> {
-                String n1 = e1.getName();
-                String n2 = e2.getName();
-                int diff = n1.length() - n2.length();
-                return diff != 0 ? diff : n1.compareTo(n2);
-            });
+            SortedSet<JarEntry> entries = new TreeSet<>((e1, e2) -> compareNames(e1.getName(), e2.getName()));
             Enumeration<JarEntry> e = jar.entries();
             while (e.hasMoreElements()) {
                 JarEntry x = e.nextElement();
@@ -177,11 +197,15 @@ public abstract class ClassFileVisitor {
                 }
                 entries.add(x);
             }
+            Layout layout = new Layout();
             for (JarEntry x : entries) {
+                String name = x.getName();
+                String className = toClassName(
+                        name.substring(
+                                name.startsWith("classes/") && file.getName().endsWith(".jmod") ? 8 : 0),
+                        "/");
                 // Even debug level seems too verbose for: logger.debug( "Processing " + x.getName() + " in " + file );
-                try (InputStream is = jar.getInputStream(x)) {
-                    process(file.getPath() + ':' + x.getName(), is);
-                }
+                layout.process(file.getPath() + ':' + x.getName(), className, () -> jar.getInputStream(x));
             }
 
         } catch (IOException cause) {
@@ -189,12 +213,115 @@ public abstract class ClassFileVisitor {
         }
     }
 
+    /**
+     * Orders shorter names first, so that outer classes are visited before their inner classes, and names of the same
+     * length by name.
+     */
+    private static int compareNames(String n1, String n2) {
+        int diff = n1.length() - n2.length();
+        return diff != 0 ? diff : n1.compareTo(n2);
+    }
+
     protected void processClassFile(File file) throws IOException {
         try (InputStream in = new FileInputStream(file)) {
             process(file.getPath(), in);
         }
     }
 
+    /**
+     * Returns the name of the class a class file at the given relative location is for if stored under the name of its
+     * class, or <code>null</code> if the location is not a possible class name, like one below
+     * <code>BOOT-INF/classes</code>.
+     */
+    private static String toClassName(String location, String separator) {
+        String[] segments = location.substring(0, location.length() - 6).split(Pattern.quote(separator), -1);
+        for (String segment : segments) {
+            if (segment.isEmpty() || !Character.isJavaIdentifierStart(segment.charAt(0))) {
+                return null;
+            }
+            for (int i = 1; i < segment.length(); i++) {
+                if (!Character.isJavaIdentifierPart(segment.charAt(i))) {
+                    return null;
+                }
+            }
+        }
+        return String.join(".", segments);
+    }
+
+    private interface Image {
+        InputStream open() throws IOException;
+    }
+
+    /**
+     * Skips the class files of one jar file or directory that are not {@link #isSelected(String) selected} by the
+     * name their location gives them, without reading them, once the first {@link #SAMPLES} class files skipped
+     * showed that the classes are stored under their names. Otherwise, like if they are stored below some other
+     * directory, the class files are processed, and the subclass has to tell from their content whether they are
+     * selected.
+     */
+    private final class Layout {
+        /**
+         * The number of class files which were found stored under their names.
+         */
+        private int named;
+
+        /**
+         * Whether a class file was found which is not stored under its name.
+         */
+        private boolean misnamed;
+
+        void process(String name, String className, Image image) throws IOException {
+            if (className != null && !misnamed && !isSelected(className)) {
+                if (named >= SAMPLES) {
+                    return;
+                }
+                byte[] bytes;
+                try (InputStream in = image.open()) {
+                    bytes = readFully(in);
+                }
+                String actual;
+                try {
+                    actual = new ClassReader(bytes).getClassName();
+                } catch (RuntimeException e) {
+                    return; // not a class file, which is not selected by its location either
+                }
+                if (className.equals(actual.replace('/', '.'))) {
+                    named++;
+                } else {
+                    misnamed = true;
+                    ClassFileVisitor.this.process(name, new ByteArrayInputStream(bytes));
+                }
+                return;
+            }
+            try (InputStream in = image.open()) {
+                ClassFileVisitor.this.process(name, in);
+            }
+        }
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Returns whether the class of the given name is to be processed, asked before the class file is read if its name
+     * is known from its location, like for the entries of a jar file. Classes which are not stored under their names
+     * are processed anyway and the subclass has to ask itself once it read the name. All classes are processed by
+     * default.
+     *
+     * @param className the fully qualified name of the class, like <code>java.util.Map$Entry</code>.
+     * @since 1.28
+     */
+    protected boolean isSelected(String className) {
+        return true;
+    }
+
     /**
      * @param name  Displayable name to identify what class file we are processing
      * @param image Class file image.
@@ -25,10 +25,14 @@ package org.codehaus.mojo.animal_sniffer;
  *
  */
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 
 import org.codehaus.mojo.animal_sniffer.logging.Logger;
 import org.objectweb.asm.ClassReader;
@@ -41,8 +45,12 @@ import org.objectweb.asm.Opcodes;
  * @author Kohsuke Kawaguchi
  */
 public class ClassListBuilder extends ClassFileVisitor {
+    private static final String VERSIONS = "META-INF/versions/";
+
     private final Set<String> packages;
 
+    private ClassListCache cache;
+
     public Set<String> getPackages() {
         return packages;
     }
@@ -56,6 +64,87 @@ public class ClassListBuilder extends ClassFileVisitor {
         this(new HashSet<>(), logger);
     }
 
+    /**
+     * Sets the cache to take the classes of jar files from, instead of reading each class file.
+     *
+     * @since 1.28
+     */
+    public void setCache(ClassListCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Takes the class names from the names of the jar entries, including the versioned entries of multi-release jars.
+     * Only entries whose name does not translate to a class name, like <code>package-info.class</code> or classes
+     * nested in <code>BOOT-INF/classes/</code>, are read.
+     */
+    @Override
+    protected void processJarFile(File file) throws IOException {
+        if (cache != null) {
+            packages.addAll(cache.getClassNames(file, logger));
+            return;
+        }
+        try (JarFile jar = new JarFile(file)) {
+            Enumeration<JarEntry> e = jar.entries();
+            while (e.hasMoreElements()) {
+                JarEntry x = e.nextElement();
+                String name = x.getName();
+                if (!name.endsWith(".class")) {
+                    continue;
+                }
+                String path = name;
+                if (path.startsWith(VERSIONS)) {
+                    int slash = path.indexOf('/', VERSIONS.length());
+                    if (slash == -1) {
+                        continue;
+                    }
+                    path = path.substring(slash + 1);
+                } else if (path.startsWith("META-INF/")) {
+                    continue;
+                }
+                if (path.equals("module-info.class")) {
+                    continue;
+                }
+                String className = toClassName(path);
+                if (className != null) {
+                    packages.add(className);
+                } else {
+                    try (InputStream is = jar.getInputStream(x)) {
+                        process(file.getPath() + ':' + name, is);
+                    }
+                }
+            }
+        } catch (IOException cause) {
+            throw new IOException(" failed to process jar " + file.getPath() + " : " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Returns the class name for the path of a class file, or <code>null</code> if the path is not made of Java
+     * identifiers.
+     */
+    static String toClassName(String path) {
+        int end = path.length() - ".class".length();
+        StringBuilder className = new StringBuilder(end);
+        boolean start = true;
+        for (int i = 0; i < end; i++) {
+            char c = path.charAt(i);
+            if (c == '/') {
+                if (start) {
+                    return null;
+                }
+                className.append('.');
+                start = true;
+            } else if (start ? Character.isJavaIdentifierStart(c) : Character.isJavaIdentifierPart(c)) {
+                className.append(c);
+                start = false;
+            } else {
+                return null;
+            }
+        }
+        return start ? null : className.toString();
+    }
+
     protected void process(String name, InputStream image) throws IOException {
         try {
             ClassReader cr = new ClassReader(image);
@@ -0,0 +1,152 @@
+package org.codehaus.mojo.animal_sniffer;
+
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2008 Kohsuke Kawaguchi and codehaus.org.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.codehaus.mojo.animal_sniffer.logging.Logger;
+
+/**
+ * Keeps the names of the classes in jar files, so that the classes of a dependency used by many modules are read
+ * only once.
+ * <p>
+ * Jar files are identified by their canonical path, and read again if their size or modification time changed.
+ * The class names are kept in memory, softly referenced and for at most {@link #MAXIMUM_SIZE} jar files, and can
+ * additionally be kept in a directory to be reused by later builds. Stored lists which cannot be read or were
+ * written in another format are replaced.
+ *
+ * @see ClassListBuilder#setCache(ClassListCache)
+ * @since 1.28
+ */
+public final class ClassListCache {
+    /**
+     * The maximum number of jar files whose class names are kept in memory.
+     */
+    public static final int MAXIMUM_SIZE = 1024;
+
+    /**
+     * The first line of the stored class lists, identifying their format.
+     */
+    private static final String HEADER = "#animal-sniffer-classes 1";
+
+    private static final ClassListCache INSTANCE = new ClassListCache(null);
+
+    private static final Map<CacheFiles.Key, CachedClassList> ENTRIES =
+            new LinkedHashMap<CacheFiles.Key, CachedClassList>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<CacheFiles.Key, CachedClassList> eldest) {
+                    return size() > MAXIMUM_SIZE;
+                }
+            };
+
+    private final File directory;
+
+    /**
+     * @param directory the directory to keep the class names in between builds, or <code>null</code> to keep them
+     *                  in memory only. The in-memory cache is shared by all instances.
+     */
+    public ClassListCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the cache which keeps the class names in memory only.
+     */
+    public static ClassListCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the names of the classes in the given jar file, as collected by {@link ClassListBuilder}.
+     *
+     * @return the class names, which must not be modified.
+     */
+    public Set<String> getClassNames(File jar, Logger logger) throws IOException {
+        CacheFiles.Key key = CacheFiles.Key.of(jar);
+        CachedClassList entry;
+        synchronized (ENTRIES) {
+            entry = ENTRIES.computeIfAbsent(key, k -> new CachedClassList());
+        }
+        synchronized (entry) {
+            Set<String> classNames = entry.classNames == null ? null : entry.classNames.get();
+            if (classNames == null) {
+                classNames = Collections.unmodifiableSet(load(key, logger));
+                entry.classNames = new SoftReference<>(classNames);
+            }
+            return classNames;
+        }
+    }
+
+    private Set<String> load(CacheFiles.Key key, Logger logger) throws IOException {
+        File stored = null;
+        if (directory != null) {
+            stored = new File(directory, key.toFileName(".classes"));
+            try {
+                List<String> lines = Files.readAllLines(stored.toPath(), StandardCharsets.UTF_8);
+                if (!lines.isEmpty() && lines.get(0).equals(HEADER)) {
+                    return new HashSet<>(lines.subList(1, lines.size()));
+                }
+                // written by another version, read the jar file again
+            } catch (IOException e) {
+                // not yet stored, or unreadable; read the jar file again
+            }
+        }
+
+        ClassListBuilder builder = new ClassListBuilder(logger);
+        builder.process(key.getFile());
+        Set<String> classNames = builder.getPackages();
+
+        if (stored != null) {
+            List<String> lines = new ArrayList<>(classNames);
+            Collections.sort(lines);
+            lines.add(0, HEADER);
+            CacheFiles.write(stored, out -> {
+                for (String line : lines) {
+                    out.write(line.getBytes(StandardCharsets.UTF_8));
+                    out.write('\n');
+                }
+            });
+        }
+        return classNames;
+    }
+
+    private static final class CachedClassList {
+        private SoftReference<Set<String>> classNames;
+    }
+}
@@ -26,8 +26,10 @@ package org.codehaus.mojo.animal_sniffer;
  */
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 
@@ -57,13 +59,28 @@ public final class Clazz implements Serializable {
      */
     private final String[] superInterfaces;
 
+    /**
+     * The table {@link #inheritedMembers} refers to, if known.
+     */
+    private transient MemberTable memberTable;
+
+    /**
+     * The sorted numbers of the members inherited from the super types, or <code>null</code> if not known.
+     */
+    private transient int[] inheritedMembers;
+
+    /**
+     * Index over {@link #signatures} for {@link #hasMember(String, String)}, built when first needed.
+     */
+    private transient volatile MemberIndex memberIndex;
+
     /**
      * Internal constructor which just assigns all fields, without performing any defensive copying
      * or similar.
      *
      * @param dummy Unused; only needed to avoid constructor signature conflicts
      */
-    private Clazz(String name, Set<String> signatures, String superClass, String[] superInterfaces, Void dummy) {
+    Clazz(String name, Set<String> signatures, String superClass, String[] superInterfaces, Void dummy) {
         this.name = name;
         this.signatures = signatures;
         this.superClass = superClass;
@@ -108,14 +125,7 @@ public final class Clazz implements Serializable {
      * @throws ClassCastException if the two instances have different names or if the superclasses differ.
      */
     public Clazz(Clazz defA, Clazz defB) {
-        if (!Objects.equals(defA.name, defB.name)) {
-            // nothing we can do... this is an invalid argument
-            throw new ClassCastException("Cannot merge different classes: " + defA.name + " and " + defB.name);
-        }
-        if (!Objects.equals(defA.superClass, defB.superClass)) {
-            // nothing we can do... this is a breaking change
-            throw new ClassCastException("Cannot merge class " + defB.name + " as it has changed superclass:");
-        }
+        checkMergeable(defA, defB.name, defB.superClass);
         Set<String> superInterfaces = new LinkedHashSet<>();
         if (defA.superInterfaces != null) {
             superInterfaces.addAll(Arrays.asList(defA.superInterfaces));
@@ -132,6 +142,22 @@ public final class Clazz implements Serializable {
         this.superInterfaces = superInterfaces.toArray(new String[0]);
     }
 
+    /**
+     * Checks that the given class can be merged into the one with the given name and superclass.
+     *
+     * @throws ClassCastException if the names or the superclasses differ.
+     */
+    private static void checkMergeable(Clazz clazz, String name, String superClass) {
+        if (!Objects.equals(clazz.name, name)) {
+            // nothing we can do... this is an invalid argument
+            throw new ClassCastException("Cannot merge different classes: " + clazz.name + " and " + name);
+        }
+        if (!Objects.equals(clazz.superClass, superClass)) {
+            // nothing we can do... this is a breaking change
+            throw new ClassCastException("Cannot merge class " + name + " as it has changed superclass:");
+        }
+    }
+
     public String getName() {
         return name;
     }
@@ -151,5 +177,148 @@ public final class Clazz implements Serializable {
         return superInterfaces;
     }
 
+    /**
+     * Returns whether this class declares the member with the given name and descriptor, which is the same as
+     * checking the {@link #getSignatures() signatures} for <code>name + desc</code> (methods) or
+     * <code>name + '#' + desc</code> (fields), but without creating that string.
+     *
+     * @since 1.28
+     */
+    public boolean hasMember(String name, String desc) {
+        MemberIndex index = memberIndex;
+        if (index == null || index.size() != signatures.size()) {
+            index = new MemberIndex(signatures);
+            memberIndex = index;
+        }
+        return index.indexOf(name, desc) != -1;
+    }
+
+    /**
+     * Returns whether the members inherited from the super types are known, see {@link #inherits(String)}.
+     *
+     * @since 1.28
+     */
+    public boolean isInheritedMembersKnown() {
+        return inheritedMembers != null;
+    }
+
+    /**
+     * Returns whether the given member signature is inherited from one of the super types of this class. Only
+     * available if the class was read from a signature that was written with inherited members, and only up to
+     * date as long as neither this class nor its super types are modified.
+     *
+     * @throws IllegalStateException if the inherited members are not known.
+     * @see #isInheritedMembersKnown()
+     * @since 1.28
+     */
+    public boolean inherits(String signature) {
+        if (inheritedMembers == null) {
+            throw new IllegalStateException("Inherited members of " + name + " are not known");
+        }
+        int id = memberTable.indexOf(signature);
+        return id != -1 && Arrays.binarySearch(inheritedMembers, id) >= 0;
+    }
+
+    /**
+     * Same as {@link #inherits(String)} for the signature of the member with the given name and descriptor, see
+     * {@link #hasMember(String, String)}.
+     *
+     * @since 1.28
+     */
+    public boolean inherits(String name, String desc) {
+        if (inheritedMembers == null) {
+            throw new IllegalStateException("Inherited members of " + this.name + " are not known");
+        }
+        int id = memberTable.indexOf(name, desc);
+        return id != -1 && Arrays.binarySearch(inheritedMembers, id) >= 0;
+    }
+
+    MemberTable getMemberTable() {
+        return memberTable;
+    }
+
+    int[] getInheritedMembers() {
+        return inheritedMembers;
+    }
+
+    void setInheritedMembers(MemberTable memberTable, int[] inheritedMembers) {
+        this.memberTable = memberTable;
+        this.inheritedMembers = inheritedMembers;
+    }
+
     private static final long serialVersionUID = 1L;
+
+    /**
+     * Merges any number of instances of the same class like {@link Clazz#Clazz(Clazz, Clazz)} does, but copies the
+     * member signatures and interfaces only once, when the merged class is {@link #build() built}, instead of on
+     * every merge.
+     *
+     * @since 1.28
+     */
+    public static final class Builder {
+        /**
+         * The instances to merge, oldest first.
+         */
+        private final List<Clazz> parts = new ArrayList<>();
+
+        /**
+         * Creates a builder starting with the given instance.
+         */
+        public Builder(Clazz clazz) {
+            parts.add(clazz);
+        }
+
+        public String getName() {
+            return parts.get(0).name;
+        }
+
+        /**
+         * Merges a newer instance into this builder, the same as replacing the merged class <code>current</code> by
+         * <code>new Clazz(clazz, current)</code>.
+         *
+         * @throws ClassCastException if the instance has a different name or superclass.
+         */
+        public Builder merge(Clazz clazz) {
+            Clazz first = parts.get(0);
+            checkMergeable(clazz, first.name, first.superClass);
+            parts.add(clazz);
+            return this;
+        }
+
+        /**
+         * Merges the instances of a newer builder into this builder, oldest first.
+         *
+         * @throws ClassCastException if the builder is for a different name or superclass.
+         */
+        public Builder merge(Builder builder) {
+            for (Clazz clazz : builder.parts) {
+                merge(clazz);
+            }
+            return this;
+        }
+
+        /**
+         * Returns the merged class; the instance is returned as is if there is only one.
+         */
+        public Clazz build() {
+            if (parts.size() == 1) {
+                return parts.get(0);
+            }
+            Set<String> superInterfaces = new LinkedHashSet<>();
+            Set<String> signatures = new LinkedHashSet<>();
+            for (int i = parts.size() - 1; i >= 0; i--) {
+                Clazz part = parts.get(i);
+                if (part.superInterfaces != null) {
+                    superInterfaces.addAll(Arrays.asList(part.superInterfaces));
+                }
+                signatures.addAll(part.signatures);
+            }
+            Clazz first = parts.get(0);
+            Clazz merged =
+                    new Clazz(first.name, signatures, first.superClass, superInterfaces.toArray(new String[0]), null);
+            parts.clear();
+            parts.add(merged);
+            return merged;
+        }
+    }
 }
@@ -0,0 +1,334 @@
+package org.codehaus.mojo.animal_sniffer;
+
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2008 Kohsuke Kawaguchi and codehaus.org.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * A temporary file holding classes sorted by name, as spilled by {@link SignatureBuilder} to bound its memory use.
+ * Classes are stored exactly, so that reading them back gives the same signature as keeping them in memory. The file
+ * is only opened once the first class is read, so that many runs can wait to be merged without holding a file handle
+ * each.
+ */
+final class ClazzRun implements Closeable {
+    /**
+     * The maximum number of runs {@link #merge(List, int, File) merged} at once.
+     */
+    static final int MAXIMUM_RUNS_MERGED = 64;
+
+    private final File file;
+
+    private DataInputStream in;
+
+    private boolean exhausted;
+
+    private ClazzRun(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Writes the given classes, which must be sorted by name, to a new temporary file.
+     *
+     * @param directory the directory to create the file in, or <code>null</code> for the default temporary directory.
+     */
+    static ClazzRun spill(Collection<Clazz> classes, File directory) throws IOException {
+        try (Writer writer = new Writer(directory)) {
+            for (Clazz c : classes) {
+                writer.write(c);
+            }
+            return writer.finish();
+        }
+    }
+
+    /**
+     * Returns the next class, or <code>null</code> if all classes were read.
+     */
+    Clazz read() throws IOException {
+        if (exhausted) {
+            return null;
+        }
+        if (in == null) {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        }
+        if (!in.readBoolean()) {
+            exhausted = true;
+            in.close();
+            return null;
+        }
+        String name = in.readUTF();
+        String superClass = readNullable(in);
+        String[] superInterfaces = null;
+        int count = in.readInt();
+        if (count >= 0) {
+            superInterfaces = new String[count];
+            for (int i = 0; i < count; i++) {
+                superInterfaces[i] = in.readUTF();
+            }
+        }
+        count = in.readInt();
+        Set<String> signatures = new LinkedHashSet<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            signatures.add(in.readUTF());
+        }
+        return new Clazz(name, signatures, superClass, superInterfaces, null);
+    }
+
+    /**
+     * Closes and deletes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (in != null) {
+                in.close();
+            }
+        } finally {
+            if (!file.delete() && file.exists()) {
+                throw new IOException("Could not delete " + file);
+            }
+        }
+    }
+
+    /**
+     * Merges the given runs, oldest first, reading at most the given number of runs at once. With more runs,
+     * consecutive runs are first merged into new runs, in as many passes as needed, which gives the same classes
+     * since merging them is associative. The given runs are closed once they have been merged.
+     *
+     * @param directory the directory to create the intermediate runs in, or <code>null</code> for the default
+     *                  temporary directory.
+     */
+    static Merger merge(List<ClazzRun> runs, int maximumRuns, File directory) throws IOException {
+        if (maximumRuns < 2) {
+            throw new IllegalArgumentException("maximumRuns must be at least 2: " + maximumRuns);
+        }
+        List<ClazzRun> intermediate = new ArrayList<>();
+        try {
+            while (runs.size() > maximumRuns) {
+                List<ClazzRun> merged = new ArrayList<>();
+                for (int i = 0; i < runs.size(); i += maximumRuns) {
+                    List<ClazzRun> group = runs.subList(i, Math.min(runs.size(), i + maximumRuns));
+                    if (group.size() == 1) {
+                        merged.add(group.get(0));
+                        continue;
+                    }
+                    try (Merger merger = new Merger(group);
+                            Writer writer = new Writer(directory)) {
+                        Clazz c;
+                        while ((c = merger.read()) != null) {
+                            writer.write(c);
+                        }
+                        ClazzRun run = writer.finish();
+                        intermediate.add(run);
+                        merged.add(run);
+                    }
+                }
+                runs = merged;
+            }
+            return new Merger(runs);
+        } catch (IOException | RuntimeException e) {
+            for (ClazzRun run : intermediate) {
+                try {
+                    run.close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the classes of some runs as one sequence sorted by name, the classes of the same name merged like the
+     * classes in memory are, the later runs into the earlier ones.
+     */
+    static final class Merger implements Closeable {
+        private final List<ClazzRun> runs;
+
+        /**
+         * The current class of each run not yet exhausted, lowest name first, then oldest run first.
+         */
+        private final PriorityQueue<Head> heads = new PriorityQueue<>();
+
+        private Merger(List<ClazzRun> runs) throws IOException {
+            this.runs = runs;
+            for (int i = 0; i < runs.size(); i++) {
+                advance(new Head(i));
+            }
+        }
+
+        /**
+         * Returns the class with the lowest name, merged from all runs, or <code>null</code> if all runs are
+         * exhausted.
+         */
+        Clazz read() throws IOException {
+            Head head = heads.poll();
+            if (head == null) {
+                return null;
+            }
+            Clazz.Builder merged = new Clazz.Builder(head.clazz);
+            advance(head);
+            while (!heads.isEmpty() && heads.peek().clazz.getName().equals(merged.getName())) {
+                Head next = heads.poll();
+                merged.merge(next.clazz);
+                advance(next);
+            }
+            return merged.build();
+        }
+
+        private void advance(Head head) throws IOException {
+            head.clazz = runs.get(head.index).read();
+            if (head.clazz != null) {
+                heads.add(head);
+            }
+        }
+
+        /**
+         * Closes and deletes the runs.
+         */
+        @Override
+        public void close() throws IOException {
+            IOException failure = null;
+            for (ClazzRun run : runs) {
+                try {
+                    run.close();
+                } catch (IOException e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    private static final class Head implements Comparable<Head> {
+        final int index;
+
+        Clazz clazz;
+
+        Head(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public int compareTo(Head other) {
+            int result = clazz.getName().compareTo(other.clazz.getName());
+            return result != 0 ? result : Integer.compare(index, other.index);
+        }
+    }
+
+    /**
+     * Writes classes sorted by name to a new temporary file, each preceded by <code>true</code> and the last one
+     * followed by <code>false</code>, so that the number of classes need not be known up front.
+     */
+    static final class Writer implements Closeable {
+        private final File file;
+
+        private final DataOutputStream out;
+
+        private boolean finished;
+
+        Writer(File directory) throws IOException {
+            file = File.createTempFile("animal-sniffer", ".run", directory);
+            try {
+                out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            } catch (IOException | RuntimeException e) {
+                file.delete();
+                throw e;
+            }
+        }
+
+        void write(Clazz c) throws IOException {
+            out.writeBoolean(true);
+            out.writeUTF(c.getName());
+            writeNullable(out, c.getSuperClass());
+            String[] superInterfaces = c.getSuperInterfaces();
+            out.writeInt(superInterfaces == null ? -1 : superInterfaces.length);
+            if (superInterfaces != null) {
+                for (String superInterface : superInterfaces) {
+                    out.writeUTF(superInterface);
+                }
+            }
+            out.writeInt(c.getSignatures().size());
+            for (String signature : c.getSignatures()) {
+                out.writeUTF(signature);
+            }
+        }
+
+        /**
+         * Finishes the file and returns it as a run to read.
+         */
+        ClazzRun finish() throws IOException {
+            out.writeBoolean(false);
+            out.close();
+            finished = true;
+            return new ClazzRun(file);
+        }
+
+        /**
+         * Deletes the file unless it was finished.
+         */
+        @Override
+        public void close() throws IOException {
+            if (!finished) {
+                try {
+                    out.close();
+                } finally {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,231 @@
+package org.codehaus.mojo.animal_sniffer;
+
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2008 Kohsuke Kawaguchi and codehaus.org.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntFunction;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads signature files in the compact binary format written by {@link CompactSignatureWriter}.
+ *
+ * @since 1.28
+ */
+public final class CompactSignatureReader extends SignatureReader {
+    /**
+     * The most items or bytes allocated for a count read from the data before they were actually read.
+     */
+    private static final int INITIAL_CAPACITY = 1 << 16;
+
+    private final DataInputStream in;
+
+    private final String[] pool;
+
+    /**
+     * The encoded member table, if the inherited members are included and the table is not yet decoded.
+     */
+    private byte[] encodedMembers;
+
+    private MemberTable members;
+
+    private int remaining;
+
+    private byte[] buffer = new byte[256];
+
+    public CompactSignatureReader(InputStream in) throws IOException {
+        DataInputStream header = new DataInputStream(in);
+        byte[] magic = new byte[CompactSignatureWriter.MAGIC.length];
+        header.readFully(magic);
+        if (!CompactSignatureWriter.isMagic(magic)) {
+            throw new IOException("Not a compact signature file");
+        }
+        int version = header.readUnsignedShort();
+        if (version != CompactSignatureWriter.VERSION) {
+            throw new IOException("Unsupported signature format version: " + version);
+        }
+        int flags = header.readUnsignedShort();
+
+        this.in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(in)));
+        int poolSize = checkCount(this.in.readInt());
+        // not allocated up front, so that a corrupt size runs into the end of the data rather than out of memory
+        List<String> strings = new ArrayList<>(Math.min(poolSize, INITIAL_CAPACITY));
+        for (int i = 0; i < poolSize; i++) {
+            strings.add(this.in.readUTF());
+        }
+        this.pool = strings.toArray(new String[0]);
+        if ((flags & CompactSignatureWriter.INHERITED_MEMBERS) != 0) {
+            this.in.readInt(); // member count
+            this.encodedMembers = readBytes(this.in, checkCount(this.in.readInt()));
+        }
+        this.remaining = checkCount(this.in.readInt());
+    }
+
+    @Override
+    public Clazz read() throws IOException {
+        if (remaining == 0) {
+            return null;
+        }
+        remaining--;
+        int length = checkCount(in.readInt());
+        if (buffer.length < length) {
+            buffer = readBytes(in, length);
+        } else {
+            in.readFully(buffer, 0, length);
+        }
+        ByteBuffer record = ByteBuffer.wrap(buffer, 0, length);
+        Clazz clazz = decode(record, i -> pool[i], stringPool);
+        if (encodedMembers != null) {
+            // decoded lazily, so that the member signatures are canonicalized with the string pool
+            members = decodeMembers(ByteBuffer.wrap(encodedMembers));
+            encodedMembers = null;
+        }
+        if (members != null) {
+            int count = readVarInt(record);
+            if (count < 0 || count - 1 > record.remaining()) {
+                throw new IOException("Corrupt signature");
+            }
+            if (count > 0) {
+                int[] inherited = new int[count - 1];
+                int previous = 0;
+                for (int i = 0; i < inherited.length; i++) {
+                    previous += readVarInt(record);
+                    inherited[i] = previous;
+                }
+                clazz.setInheritedMembers(members, inherited);
+            }
+        }
+        return clazz;
+    }
+
+    private MemberTable decodeMembers(ByteBuffer encoded) throws IOException {
+        MemberTable table = new MemberTable();
+        try {
+            while (encoded.hasRemaining()) {
+                String signature = pool[readVarInt(encoded)].concat(pool[readVarInt(encoded)]);
+                table.add(stringPool == null ? signature : stringPool.intern(signature));
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Corrupt signature", e);
+        }
+        return table;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Decodes a single class record.
+     *
+     * @param record     the record, positioned at its start.
+     * @param pool       the constant pool the record refers to.
+     * @param stringPool the pool to canonicalize member signatures with, or <code>null</code>.
+     */
+    static Clazz decode(ByteBuffer record, IntFunction<String> pool, StringPool stringPool) throws IOException {
+        try {
+            String name = pool.apply(readVarInt(record));
+            int superClass = readVarInt(record);
+            String[] superInterfaces = new String[readCount(record)];
+            for (int i = 0; i < superInterfaces.length; i++) {
+                superInterfaces[i] = pool.apply(readVarInt(record));
+            }
+            Clazz clazz = new Clazz(name, superClass == 0 ? null : pool.apply(superClass - 1), superInterfaces);
+            Set<String> signatures = clazz.getSignatures();
+            int memberCount = readCount(record);
+            for (int i = 0; i < memberCount; i++) {
+                String memberName = pool.apply(readVarInt(record));
+                String signature = memberName.concat(pool.apply(readVarInt(record)));
+                signatures.add(stringPool == null ? signature : stringPool.intern(signature));
+            }
+            return clazz;
+        } catch (IndexOutOfBoundsException e) {
+            // a string index past the end of the pool
+            throw new IOException("Corrupt signature", e);
+        }
+    }
+
+    /**
+     * Reads the number of the items which follow in a record, each of which takes at least one byte.
+     */
+    private static int readCount(ByteBuffer record) throws IOException {
+        int count = readVarInt(record);
+        if (count < 0 || count > record.remaining()) {
+            throw new IOException("Corrupt signature");
+        }
+        return count;
+    }
+
+    private static int checkCount(int count) throws IOException {
+        if (count < 0) {
+            throw new IOException("Corrupt signature");
+        }
+        return count;
+    }
+
+    /**
+     * Reads the given number of bytes, allocating only as much as was actually read, so that a corrupt length runs
+     * into the end of the data rather than out of memory.
+     */
+    private static byte[] readBytes(DataInputStream in, int length) throws IOException {
+        byte[] bytes = new byte[Math.min(length, INITIAL_CAPACITY)];
+        int read = 0;
+        while (true) {
+            in.readFully(bytes, read, bytes.length - read);
+            read = bytes.length;
+            if (read == length) {
+                return bytes;
+            }
+            bytes = Arrays.copyOf(bytes, (int) Math.min(length, 2L * read));
+        }
+    }
+
+    static int readVarInt(ByteBuffer buffer) throws IOException {
+        try {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                byte b = buffer.get();
+                value |= (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            // the record ends in the middle of a number
+            throw new IOException("Corrupt signature", e);
+        }
+        throw new IOException("Malformed signature record");
+    }
+}
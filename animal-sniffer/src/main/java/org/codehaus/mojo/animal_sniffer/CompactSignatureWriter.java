@@ -0,0 +1,214 @@
+package org.codehaus.mojo.animal_sniffer;
+
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2008 Kohsuke Kawaguchi and codehaus.org.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes signature files in the compact binary format (format version 2).
+ * <p>
+ * The format consists of an uncompressed header followed by a GZIP compressed body:
+ * <pre>
+ * header  : magic ("ASIG"), u2 version, u2 flags
+ * body    : int poolSize, poolSize * UTF string,
+ *           [int memberCount, int length, memberCount * (varint memberName, varint memberDescriptor)],
+ *           int classCount, classCount * (int length, record)
+ * record  : varint name, varint superClass + 1 (0 if none),
+ *           varint interfaceCount, interfaceCount * varint interface,
+ *           varint memberCount, memberCount * (varint memberName, varint memberDescriptor),
+ *           [varint inheritedCount + 1 (0 if unknown), inheritedCount * varint member delta]
+ * </pre>
+ * All strings of a record are indices into the shared constant pool. Members are split into their name and the
+ * remainder (<code>(I)V</code> for methods, <code>#I</code> for fields) so that descriptors are stored only once.
+ * <p>
+ * The parts in brackets are only present if the {@link #INHERITED_MEMBERS} flag is set. The members a class inherits
+ * from its super types are then stored as the ascending numbers of the members in the member table, each written as
+ * the difference to the previous one.
+ *
+ * @since 1.28
+ */
+public final class CompactSignatureWriter extends SignatureWriter {
+    static final byte[] MAGIC = {'A', 'S', 'I', 'G'};
+
+    static final int VERSION = 2;
+
+    /**
+     * Flag set if the records include the members inherited from the super types.
+     */
+    static final int INHERITED_MEMBERS = 1;
+
+    private final OutputStream out;
+
+    private final MemberTable members;
+
+    private final SignatureRecordEncoder encoder = new SignatureRecordEncoder();
+
+    private final ByteArrayOutputStream records = new ByteArrayOutputStream();
+
+    /**
+     * The file the records are written to instead of {@link #records} if the memory is bounded, as they follow the
+     * pool, which is only complete once all classes were written.
+     */
+    private File recordsFile;
+
+    private OutputStream recordsOut = records;
+
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+
+    private int classCount;
+
+    public CompactSignatureWriter(OutputStream out) {
+        this(out, false);
+    }
+
+    /**
+     * @param inheritedMembers whether to write the members inherited by each class, as attached to the classes by
+     *                         {@link SignatureBuilder#setInheritedMembers(boolean)} or read from such a signature.
+     */
+    public CompactSignatureWriter(OutputStream out, boolean inheritedMembers) {
+        this.out = out;
+        this.members = inheritedMembers ? new MemberTable() : null;
+    }
+
+    @Override
+    public void write(Clazz clazz) throws IOException {
+        record.reset();
+        encoder.encode(clazz, record);
+        if (members != null) {
+            writeInheritedMembers(clazz);
+        }
+
+        DataOutputStream dos = new DataOutputStream(recordsOut);
+        dos.writeInt(record.size());
+        record.writeTo(dos);
+        classCount++;
+    }
+
+    /**
+     * Writes the records to a temporary file until the signature is closed, so that only the pool of distinct
+     * strings is kept in memory.
+     */
+    @Override
+    void setMaximumClassesInMemory(int maximumClassesInMemory, File temporaryDirectory) throws IOException {
+        if (classCount > 0) {
+            throw new IllegalStateException("Classes were already written");
+        }
+        if (recordsFile == null) {
+            recordsFile = File.createTempFile("animal-sniffer", ".records", temporaryDirectory);
+            recordsOut = new BufferedOutputStream(new FileOutputStream(recordsFile));
+        }
+    }
+
+    private void writeInheritedMembers(Clazz clazz) throws IOException {
+        int[] inherited = clazz.getInheritedMembers();
+        if (inherited == null) {
+            SignatureRecordEncoder.writeVarInt(record, 0);
+            return;
+        }
+        MemberTable source = clazz.getMemberTable();
+        int[] ids = new int[inherited.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = members.add(source.get(inherited[i]));
+        }
+        Arrays.sort(ids);
+        SignatureRecordEncoder.writeVarInt(record, ids.length + 1);
+        int previous = 0;
+        for (int id : ids) {
+            SignatureRecordEncoder.writeVarInt(record, id - previous);
+            previous = id;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            recordsOut.close();
+            writeSignature();
+        } finally {
+            if (recordsFile != null) {
+                Files.deleteIfExists(recordsFile.toPath());
+            }
+        }
+    }
+
+    private void writeSignature() throws IOException {
+        ByteArrayOutputStream memberTable = null;
+        if (members != null) {
+            // adds the member names and descriptors to the pool, so do it before writing the pool
+            memberTable = new ByteArrayOutputStream();
+            for (int i = 0; i < members.size(); i++) {
+                String signature = members.get(i);
+                int split = SignatureRecordEncoder.memberNameLength(signature);
+                SignatureRecordEncoder.writeVarInt(memberTable, encoder.index(signature.substring(0, split)));
+                SignatureRecordEncoder.writeVarInt(memberTable, encoder.index(signature.substring(split)));
+            }
+        }
+
+        DataOutputStream header = new DataOutputStream(out);
+        header.write(MAGIC);
+        header.writeShort(VERSION);
+        header.writeShort(members != null ? INHERITED_MEMBERS : 0); // flags
+        header.flush();
+
+        try (DataOutputStream body = new DataOutputStream(new GZIPOutputStream(out))) {
+            List<String> pool = encoder.getPool();
+            body.writeInt(pool.size());
+            for (String s : pool) {
+                body.writeUTF(s);
+            }
+            if (memberTable != null) {
+                body.writeInt(members.size());
+                body.writeInt(memberTable.size());
+                memberTable.writeTo(body);
+            }
+            body.writeInt(classCount);
+            if (recordsFile != null) {
+                Files.copy(recordsFile.toPath(), body);
+            } else {
+                records.writeTo(body);
+            }
+        }
+    }
+
+    static boolean isMagic(byte[] bytes) {
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (bytes[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
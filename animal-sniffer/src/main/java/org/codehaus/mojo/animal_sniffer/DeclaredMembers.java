@@ -0,0 +1,75 @@
+package org.codehaus.mojo.animal_sniffer;
+
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2008 Kohsuke Kawaguchi and codehaus.org.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+import org.objectweb.asm.ClassReader;
+
+/**
+ * Reads the names and descriptors of the fields and methods a class file declares, in the order ASM would visit them,
+ * straight from the field and method tables. The attributes, like the code of the methods, are skipped without being
+ * parsed.
+ */
+final class DeclaredMembers {
+    /**
+     * Receives the declared members, the fields first. Fields and methods are told apart by their descriptors, as only
+     * method descriptors start with <code>'('</code>.
+     */
+    interface Visitor {
+        /**
+         * @return <code>false</code> to stop reading further members.
+         */
+        boolean visit(String name, String desc);
+    }
+
+    private DeclaredMembers() {}
+
+    /**
+     * Passes the declared members of the given class to the visitor until it returns <code>false</code>.
+     *
+     * @param buffer a buffer of at least {@link ClassReader#getMaxStringLength()} characters.
+     * @return <code>false</code> if the visitor stopped early.
+     */
+    static boolean accept(ClassReader cr, char[] buffer, Visitor visitor) {
+        // access flags, this class and super class, followed by the interfaces
+        int offset = cr.header + 6;
+        offset += 2 + 2 * cr.readUnsignedShort(offset);
+        for (int kind = 0; kind < 2; kind++) {
+            int count = cr.readUnsignedShort(offset);
+            offset += 2;
+            for (int i = 0; i < count; i++) {
+                if (!visitor.visit(cr.readUTF8(offset + 2, buffer), cr.readUTF8(offset + 4, buffer))) {
+                    return false;
+                }
+                int attributes = cr.readUnsignedShort(offset + 6);
+                offset += 8;
+                for (int j = 0; j < attributes; j++) {
+                    offset += 6 + cr.readInt(offset + 2);
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,60 @@
+package org.codehaus.mojo.animal_sniffer;
+
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2008 Kohsuke Kawaguchi and codehaus.org.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads signature files in the legacy format, i.e. a GZIP compressed Java Serialization stream of {@link Clazz}
+ * instances terminated by <code>null</code>.
+ *
+ * @since 1.28
+ */
+public final class LegacySignatureReader extends SignatureReader {
+    private final ObjectInputStream ois;
+
+    public LegacySignatureReader(InputStream in) throws IOException {
+        this.ois = new SignatureObjectInputStream(new GZIPInputStream(in));
+    }
+
+    @Override
+    public Clazz read() throws IOException {
+        try {
+            Clazz clazz = (Clazz) ois.readObject();
+            return clazz == null || stringPool == null ? clazz : stringPool.intern(clazz);
+        } catch (ClassNotFoundException e) {
+            throw new NoClassDefFoundError(e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        ois.close();
+    }
+}
@@ -0,0 +1,77 @@
+package org.codehaus.mojo.animal_sniffer;
+
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2008 Kohsuke Kawaguchi and codehaus.org.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes signature files in the legacy format, i.e. a GZIP compressed Java Serialization stream of {@link Clazz}
+ * instances terminated by <code>null</code>.
+ *
+ * @since 1.28
+ */
+public final class LegacySignatureWriter extends SignatureWriter {
+    private final ObjectOutputStream oos;
+
+    /**
+     * The number of classes after which the stream forgets the objects written, or <code>0</code> to keep them all.
+     */
+    private int resetInterval;
+
+    private int written;
+
+    public LegacySignatureWriter(OutputStream out) throws IOException {
+        this.oos = new ObjectOutputStream(new GZIPOutputStream(out));
+    }
+
+    @Override
+    public void write(Clazz clazz) throws IOException {
+        oos.writeObject(clazz);
+        if (resetInterval > 0 && ++written % resetInterval == 0) {
+            // the stream references every object written so that it can write it again as a handle
+            oos.reset();
+        }
+    }
+
+    /**
+     * Resets the stream after every given number of classes, so that it does not reference all classes written.
+     * Strings shared with classes written before then are written again.
+     */
+    @Override
+    void setMaximumClassesInMemory(int maximumClassesInMemory, File temporaryDirectory) {
+        this.resetInterval = maximumClassesInMemory;
+    }
+
+    @Override
+    public void close() throws IOException {
+        oos.writeObject(null); // EOF marker
+        oos.close();
+    }
+}
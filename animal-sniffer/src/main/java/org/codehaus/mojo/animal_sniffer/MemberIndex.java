@@ -0,0 +1,123 @@
+package org.codehaus.mojo.animal_sniffer;
+
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2008 Kohsuke Kawaguchi and codehaus.org.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+import java.util.Collection;
+
+/**
+ * An immutable hash index over member signatures which can be queried with the name and the descriptor of a member
+ * as separate strings, so that lookups do not need to concatenate them into a signature first. Method signatures
+ * are <code>name + desc</code> and field signatures are <code>name + '#' + desc</code>; both are told apart by the
+ * descriptor, as only method descriptors start with <code>'('</code>.
+ */
+final class MemberIndex {
+    private final String[] members;
+
+    /**
+     * Open addressing table holding the position of each member in {@link #members} plus one, or zero if empty.
+     */
+    private final int[] slots;
+
+    MemberIndex(Collection<String> signatures) {
+        members = signatures.toArray(new String[0]);
+        int capacity = Integer.highestOneBit(Math.max(members.length, 2) * 2 - 1) << 1;
+        slots = new int[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < members.length; i++) {
+            int slot = spread(members[i].hashCode()) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = i + 1;
+        }
+    }
+
+    int size() {
+        return members.length;
+    }
+
+    String get(int index) {
+        return members[index];
+    }
+
+    /**
+     * Returns the position of the member with the given name and descriptor, or <code>-1</code> if there is none.
+     */
+    int indexOf(String name, String desc) {
+        int mask = slots.length - 1;
+        int slot = spread(hash(name, desc)) & mask;
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            if (matches(members[entry - 1], name, desc)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the signature of the member with the given name and descriptor.
+     */
+    static String signature(String name, String desc) {
+        return isField(desc) ? name + '#' + desc : name + desc;
+    }
+
+    /**
+     * Returns the same value as <code>signature(name, desc).hashCode()</code>, without creating the signature.
+     */
+    static int hash(String name, String desc) {
+        int h = name.hashCode();
+        if (isField(desc)) {
+            h = 31 * h + '#';
+        }
+        for (int i = 0; i < desc.length(); i++) {
+            h = 31 * h + desc.charAt(i);
+        }
+        return h;
+    }
+
+    private static boolean matches(String signature, String name, String desc) {
+        int offset = name.length();
+        if (isField(desc)) {
+            if (signature.length() != offset + 1 + desc.length() || signature.charAt(offset) != '#') {
+                return false;
+            }
+            offset++;
+        } else if (signature.length() != offset + desc.length()) {
+            return false;
+        }
+        return signature.startsWith(name) && signature.startsWith(desc, offset);
+    }
+
+    private static boolean isField(String desc) {
+        return desc.isEmpty() || desc.charAt(0) != '(';
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+}
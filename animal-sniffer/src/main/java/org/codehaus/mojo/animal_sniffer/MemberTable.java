@@ -0,0 +1,176 @@
+package org.codehaus.mojo.animal_sniffer;
+
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2008 Kohsuke Kawaguchi and codehaus.org.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Numbers distinct member signatures, so that the members a class inherits from its super types can be kept as a
+ * sorted array of member numbers instead of a set of strings.
+ *
+ * @see Clazz#inherits(String)
+ */
+final class MemberTable {
+    private static final int[] NONE = new int[0];
+
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    private final List<String> members = new ArrayList<>();
+
+    /**
+     * Index over {@link #members} for {@link #indexOf(String, String)}, built when first needed.
+     */
+    private volatile MemberIndex index;
+
+    /**
+     * Returns the number of the given member signature, adding it if needed.
+     */
+    int add(String signature) {
+        Integer id = ids.get(signature);
+        if (id == null) {
+            id = members.size();
+            members.add(signature);
+            ids.put(signature, id);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the number of the given member signature, or <code>-1</code> if it is not in this table.
+     */
+    int indexOf(String signature) {
+        Integer id = ids.get(signature);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the number of the signature of the member with the given name and descriptor, or <code>-1</code> if it
+     * is not in this table.
+     */
+    int indexOf(String name, String desc) {
+        MemberIndex index = this.index;
+        if (index == null || index.size() != members.size()) {
+            index = new MemberIndex(members);
+            this.index = index;
+        }
+        return index.indexOf(name, desc);
+    }
+
+    String get(int id) {
+        return members.get(id);
+    }
+
+    int size() {
+        return members.size();
+    }
+
+    /**
+     * Computes the members inherited by each of the given classes from the super types which are also part of the
+     * given classes, and attaches them to the classes. Constructors and static initializers are not inherited.
+     *
+     * @return the table the member numbers refer to.
+     */
+    static MemberTable flatten(Map<String, Clazz> classes) {
+        MemberTable table = new MemberTable();
+        Map<String, int[]> inherited = new HashMap<>();
+        for (Clazz c : classes.values()) {
+            c.setInheritedMembers(table, inherited(c, classes, table, inherited));
+        }
+        return table;
+    }
+
+    private static int[] inherited(
+            Clazz c, Map<String, Clazz> classes, MemberTable table, Map<String, int[]> inherited) {
+        int[] members = inherited.get(c.getName());
+        if (members != null) {
+            return members;
+        }
+        // guards against (broken) circular hierarchies
+        inherited.put(c.getName(), NONE);
+
+        IdSet ids = new IdSet();
+        addSuperType(c.getSuperClass(), classes, table, inherited, ids);
+        if (c.getSuperInterfaces() != null) {
+            for (String superInterface : c.getSuperInterfaces()) {
+                addSuperType(superInterface, classes, table, inherited, ids);
+            }
+        }
+        members = ids.toArray();
+        inherited.put(c.getName(), members);
+        return members;
+    }
+
+    private static void addSuperType(
+            String name, Map<String, Clazz> classes, MemberTable table, Map<String, int[]> inherited, IdSet ids) {
+        Clazz superType = name == null ? null : classes.get(name);
+        if (superType == null) {
+            return;
+        }
+        for (String signature : superType.getSignatures()) {
+            if (!signature.startsWith("<")) {
+                ids.add(table.add(signature));
+            }
+        }
+        for (int id : inherited(superType, classes, table, inherited)) {
+            ids.add(id);
+        }
+    }
+
+    /**
+     * A growable set of member numbers.
+     */
+    private static final class IdSet {
+        private int[] ids = new int[16];
+
+        private int size;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        int[] toArray() {
+            if (size == 0) {
+                return NONE;
+            }
+            int[] sorted = Arrays.copyOf(ids, size);
+            Arrays.sort(sorted);
+            int distinct = 1;
+            for (int i = 1; i < sorted.length; i++) {
+                if (sorted[i] != sorted[distinct - 1]) {
+                    sorted[distinct++] = sorted[i];
+                }
+            }
+            return distinct == sorted.length ? sorted : Arrays.copyOf(sorted, distinct);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package org.codehaus.mojo.animal_sniffer;
+
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2008 Kohsuke Kawaguchi and codehaus.org.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.TreeSet;
+
+/**
+ * Matches names against a set of patterns at once. The patterns are compiled into a radix tree whose nodes are
+ * kept in a few arrays, so that matching costs time proportional to the length of the name rather than to the
+ * number of patterns, and the tree takes less memory than the patterns as a set of strings.
+ * <p>
+ * In a pattern, <code>*</code> matches any sequence of characters. Like the ignore rules of {@link SignatureChecker}
+ * always did, <code>?</code> matches any single character only in patterns with a <code>*</code> before their last
+ * character, and literally in patterns without <code>*</code> and in prefix patterns, which end with their only
+ * <code>*</code>, unless compiled with {@link #compileWildcards(Collection)}.
+ */
+final class NameMatcher {
+    /**
+     * Stands for <code>?</code> in wildcard patterns, a non-character which cannot appear in names.
+     */
+    private static final char ANY = '\uFFFE';
+
+    /**
+     * Stands for <code>*</code> in wildcard patterns, sorted after {@link #ANY}.
+     */
+    private static final char STAR = '\uFFFF';
+
+    /**
+     * The labels of all nodes.
+     */
+    private final char[] chars;
+
+    private final int[] labelStart;
+
+    private final int[] labelLength;
+
+    /**
+     * The children of a node are stored next to each other, sorted by the first character of their label, so that
+     * the {@link #ANY} and {@link #STAR} children come last.
+     */
+    private final int[] firstChild;
+
+    private final int[] childCount;
+
+    /**
+     * Whether a pattern ends at a node.
+     */
+    private final long[] terminal;
+
+    private NameMatcher(Builder builder) {
+        this.chars = Arrays.copyOf(builder.chars, builder.charCount);
+        this.labelStart = Arrays.copyOf(builder.labelStart, builder.nodeCount);
+        this.labelLength = Arrays.copyOf(builder.labelLength, builder.nodeCount);
+        this.firstChild = Arrays.copyOf(builder.firstChild, builder.nodeCount);
+        this.childCount = Arrays.copyOf(builder.childCount, builder.nodeCount);
+        this.terminal = Arrays.copyOf(builder.terminal, (builder.nodeCount + 63) >> 6);
+    }
+
+    /**
+     * Compiles the given patterns.
+     */
+    static NameMatcher compile(Collection<String> patterns) {
+        return compile(patterns, false);
+    }
+
+    /**
+     * Compiles the given patterns, all of them as wildcard patterns, so that <code>?</code> matches any single
+     * character also in patterns without <code>*</code>, like {@link RegexUtils#compileWildcard(String)} does.
+     */
+    static NameMatcher compileWildcards(Collection<String> patterns) {
+        return compile(patterns, true);
+    }
+
+    private static NameMatcher compile(Collection<String> patterns, boolean wildcards) {
+        TreeSet<String> keys = new TreeSet<>();
+        for (String pattern : patterns) {
+            int star = pattern.indexOf('*');
+            String key = pattern.replace('*', STAR);
+            if (wildcards || (star != -1 && star != pattern.length() - 1)) {
+                key = key.replace('?', ANY);
+            }
+            keys.add(key);
+        }
+        Builder builder = new Builder(keys.size());
+        String[] sorted = keys.toArray(new String[0]);
+        keys.clear();
+        builder.build(0, sorted, 0, sorted.length, 0);
+        return new NameMatcher(builder);
+    }
+
+    /**
+     * Returns whether the name matches any of the patterns.
+     */
+    boolean matches(String name) {
+        return matches(0, name, 0);
+    }
+
+    /**
+     * Returns whether the rest of the name, starting at <code>pos</code>, matches a pattern below the given node,
+     * whose label has been matched already.
+     */
+    private boolean matches(int node, String name, int pos) {
+        int length = name.length();
+        int first = firstChild[node];
+        int last = first + childCount[node] - 1;
+        if (last >= first && chars[labelStart[last]] == STAR) {
+            int star = last--;
+            if (childCount[star] == 0) {
+                return true; // a trailing '*' matches whatever remains
+            }
+            for (int i = pos; i <= length; i++) {
+                if (matches(star, name, i)) {
+                    return true;
+                }
+            }
+        }
+        if (pos == length) {
+            return (terminal[node >> 6] & (1L << node)) != 0;
+        }
+        if (last >= first && chars[labelStart[last]] == ANY) {
+            if (matches(last--, name, pos + 1)) {
+                return true;
+            }
+        }
+        int child = findChild(first, last, name.charAt(pos));
+        if (child == -1) {
+            return false;
+        }
+        int start = labelStart[child];
+        int end = pos + labelLength[child];
+        if (end > length) {
+            return false;
+        }
+        for (int i = pos + 1, j = start + 1; i < end; i++, j++) {
+            if (name.charAt(i) != chars[j]) {
+                return false;
+            }
+        }
+        return matches(child, name, end);
+    }
+
+    private int findChild(int low, int high, char c) {
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char m = chars[labelStart[mid]];
+            if (m < c) {
+                low = mid + 1;
+            } else if (m > c) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Lays out the radix tree of a sorted array of keys, allocating the children of a node next to each other.
+     */
+    private static final class Builder {
+        private char[] chars = new char[1024];
+
+        private int charCount;
+
+        private int[] labelStart;
+
+        private int[] labelLength;
+
+        private int[] firstChild;
+
+        private int[] childCount;
+
+        private long[] terminal;
+
+        private int nodeCount = 1;
+
+        Builder(int keyCount) {
+            int capacity = Math.max(16, keyCount * 2);
+            labelStart = new int[capacity];
+            labelLength = new int[capacity];
+            firstChild = new int[capacity];
+            childCount = new int[capacity];
+            terminal = new long[(capacity + 63) >> 6];
+        }
+
+        /**
+         * Builds the node for the keys <code>[from, to)</code>, which share their first <code>depth</code>
+         * characters.
+         */
+        void build(int node, String[] keys, int from, int to, int depth) {
+            if (from < to && keys[from].length() == depth) {
+                terminal[node >> 6] |= 1L << node;
+                from++;
+            }
+            int children = 0;
+            for (int i = from; i < to; i = next(keys, i, to, depth)) {
+                children++;
+            }
+            int first = allocate(children);
+            firstChild[node] = first;
+            childCount[node] = children;
+
+            int child = first;
+            for (int i = from; i < to; child++) {
+                int end = next(keys, i, to, depth);
+                int labelEnd = depth + 1;
+                if (!isWildcard(keys[i].charAt(depth))) {
+                    String a = keys[i];
+                    String b = keys[end - 1];
+                    int max = Math.min(a.length(), b.length());
+                    while (labelEnd < max
+                            && a.charAt(labelEnd) == b.charAt(labelEnd)
+                            && !isWildcard(a.charAt(labelEnd))) {
+                        labelEnd++;
+                    }
+                }
+                labelStart[child] = append(keys[i], depth, labelEnd);
+                labelLength[child] = labelEnd - depth;
+                build(child, keys, i, end, labelEnd);
+                i = end;
+            }
+        }
+
+        /**
+         * Returns the end of the group of keys starting at <code>from</code> which share the character at
+         * <code>depth</code>.
+         */
+        private static int next(String[] keys, int from, int to, int depth) {
+            char c = keys[from].charAt(depth);
+            int i = from + 1;
+            while (i < to && keys[i].charAt(depth) == c) {
+                i++;
+            }
+            return i;
+        }
+
+        private static boolean isWildcard(char c) {
+            return c == ANY || c == STAR;
+        }
+
+        private int allocate(int count) {
+            int first = nodeCount;
+            nodeCount += count;
+            if (nodeCount > labelStart.length) {
+                int capacity = Math.max(nodeCount, labelStart.length * 2);
+                labelStart = Arrays.copyOf(labelStart, capacity);
+                labelLength = Arrays.copyOf(labelLength, capacity);
+                firstChild = Arrays.copyOf(firstChild, capacity);
+                childCount = Arrays.copyOf(childCount, capacity);
+                terminal = Arrays.copyOf(terminal, (capacity + 63) >> 6);
+            }
+            return first;
+        }
+
+        private int append(String key, int from, int to) {
+            int start = charCount;
+            charCount += to - from;
+            if (charCount > chars.length) {
+                chars = Arrays.copyOf(chars, Math.max(charCount, chars.length * 2));
+            }
+            key.getChars(from, to, chars, start);
+            return start;
+        }
+    }
+}
@@ -25,30 +25,34 @@ package org.codehaus.mojo.animal_sniffer;
  *
  */
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.net.URI;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
-import java.util.regex.Pattern;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.codehaus.mojo.animal_sniffer.logging.Logger;
 import org.codehaus.mojo.animal_sniffer.logging.PrintWriterLogger;
 import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.ClassVisitor;
-import org.objectweb.asm.FieldVisitor;
-import org.objectweb.asm.MethodVisitor;
-import org.objectweb.asm.Opcodes;
 
 /**
  * Builds up a signature list from the given classes.
@@ -60,16 +64,27 @@ public class SignatureBuilder extends ClassFileVisitor {
 
     private final Logger logger;
 
-    private List<Pattern> includeClasses;
+    private List<String> includeClasses;
 
-    private List<Pattern> excludeClasses;
+    private List<String> excludeClasses;
 
-    private final Map<String, Clazz> classes = new TreeMap<>();
+    /**
+     * The {@link #includeClasses} compiled into one matcher, or <code>null</code> if all classes are included.
+     */
+    private NameMatcher includes;
+
+    /**
+     * The {@link #excludeClasses} compiled into one matcher, or <code>null</code> if no classes are excluded.
+     */
+    private NameMatcher excludes;
+
+    private final Map<String, Clazz.Builder> classes = new TreeMap<>();
 
     public static void main(String[] args) throws IOException {
         SignatureBuilder builder =
                 new SignatureBuilder(new FileOutputStream("signature"), new PrintWriterLogger(System.out));
         if (getJavaVersion() > 8) {
+            builder.setThreads(Runtime.getRuntime().availableProcessors());
             builder.process(Paths.get(URI.create("jrt:/modules")));
         } else {
             builder.process(new File(System.getProperty("java.home"), "lib/rt.jar"));
@@ -77,7 +92,35 @@ public class SignatureBuilder extends ClassFileVisitor {
         builder.close();
     }
 
-    private final ObjectOutputStream oos;
+    private final OutputStream out;
+
+    private int formatVersion = SignatureWriter.LEGACY_FORMAT;
+
+    private boolean inheritedMembers;
+
+    private int maximumClassesInMemory;
+
+    private File temporaryDirectory;
+
+    private int threads = 1;
+
+    /**
+     * The classes spilled to temporary files so far, oldest first.
+     */
+    private final List<ClazzRun> runs = new ArrayList<>();
+
+    /**
+     * The number of classes after which the classes in a map are spilled, lowered while workers keep maps of their
+     * own, or <code>0</code> to keep all classes in memory.
+     */
+    private int spillThreshold;
+
+    /**
+     * The number of classes kept in memory by this builder and its workers.
+     */
+    private final AtomicInteger classesInMemory = new AtomicInteger();
+
+    private final AtomicInteger peakClassesInMemory = new AtomicInteger();
 
     public SignatureBuilder(OutputStream out, Logger logger) throws IOException {
         this(null, out, logger);
@@ -87,113 +130,462 @@ public class SignatureBuilder extends ClassFileVisitor {
         if (includeClasses == null) {
             includeClasses = new ArrayList<>();
         }
-        includeClasses.add(RegexUtils.compileWildcard(className));
+        includeClasses.add(className);
+        includes = NameMatcher.compileWildcards(includeClasses);
     }
 
     public void addExclude(String className) {
         if (excludeClasses == null) {
             excludeClasses = new ArrayList<>();
         }
-        excludeClasses.add(RegexUtils.compileWildcard(className));
+        excludeClasses.add(className);
+        excludes = NameMatcher.compileWildcards(excludeClasses);
+    }
+
+    /**
+     * Sets the format of the signature file to write.
+     *
+     * @param formatVersion either {@link SignatureWriter#LEGACY_FORMAT} (the default) or
+     *                      {@link SignatureWriter#COMPACT_FORMAT}.
+     * @since 1.28
+     */
+    public void setFormatVersion(int formatVersion) {
+        if (formatVersion != SignatureWriter.LEGACY_FORMAT && formatVersion != SignatureWriter.COMPACT_FORMAT) {
+            throw new IllegalArgumentException("Unsupported signature format version: " + formatVersion);
+        }
+        this.formatVersion = formatVersion;
+    }
+
+    /**
+     * Sets whether to include the members each class inherits from its super types in the signature, so that
+     * checking whether a class has a member does not need to look at its super types. Requires the
+     * {@link SignatureWriter#COMPACT_FORMAT compact format}.
+     *
+     * @since 1.28
+     */
+    public void setInheritedMembers(boolean inheritedMembers) {
+        this.inheritedMembers = inheritedMembers;
+    }
+
+    /**
+     * Sets the maximum number of classes to keep in memory while building the signature. Once more classes were
+     * visited, they are written to a temporary file sorted by name, and all the files are merged when the signature
+     * is written. The signature is the same as when keeping all classes in memory. Cannot be combined with
+     * {@link #setInheritedMembers(boolean) inherited members}, which need all classes at once. The signature is written
+     * with bounded memory too: the writer of the {@link SignatureWriter#LEGACY_FORMAT legacy format} drops its
+     * references to the classes written after every so many classes, so strings may be written more than once, and
+     * the writer of the {@link SignatureWriter#COMPACT_FORMAT compact format} keeps its records in a temporary file
+     * until it writes them after its pool, which still holds every distinct string.
+     *
+     * @param maximumClassesInMemory the maximum number of classes, or <code>0</code> (the default) to keep all
+     *                               classes in memory.
+     * @since 1.28
+     */
+    public void setMaximumClassesInMemory(int maximumClassesInMemory) {
+        if (maximumClassesInMemory < 0) {
+            throw new IllegalArgumentException(
+                    "maximumClassesInMemory must not be negative: " + maximumClassesInMemory);
+        }
+        this.maximumClassesInMemory = maximumClassesInMemory;
+        this.spillThreshold = maximumClassesInMemory;
+    }
+
+    /**
+     * Sets the directory to write the classes to if keeping at most {@link #setMaximumClassesInMemory(int) some} in
+     * memory, by default the temporary directory of the system.
+     *
+     * @since 1.28
+     */
+    public void setTemporaryDirectory(File temporaryDirectory) {
+        this.temporaryDirectory = temporaryDirectory;
+    }
+
+    /**
+     * Sets the number of threads used to scan the directories below a {@link #process(Path) path}, like the modules
+     * of <code>jrt:/modules</code>, and the files given to {@link #processAll(List)}.
+     *
+     * @param threads the number of threads, {@code 1} (the default) scans the class files one by one.
+     * @since 1.28
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive: " + threads);
+        }
+        this.threads = threads;
     }
 
     public SignatureBuilder(InputStream[] ins, OutputStream out, Logger logger) throws IOException {
         this.logger = logger;
         if (ins != null) {
             for (InputStream in : ins) {
-                try (ObjectInputStream ois = new SignatureObjectInputStream(new GZIPInputStream(in))) {
+                try (SignatureReader reader = SignatureReader.open(in)) {
                     while (true) {
-                        Clazz c = (Clazz) ois.readObject();
+                        Clazz c = reader.read();
                         if (c == null) {
                             break; // finished
                         }
-                        classes.put(c.getName(), c);
+                        // a class of a later signature replaces the one of an earlier signature
+                        if (classes.put(c.getName(), new Clazz.Builder(c)) == null) {
+                            peakClassesInMemory.accumulateAndGet(classesInMemory.incrementAndGet(), Math::max);
+                        }
                     }
-                } catch (ClassNotFoundException e) {
-                    throw new IOException("Could not read base signatures", e);
                 }
             }
         }
-        oos = new ObjectOutputStream(new GZIPOutputStream(out));
+        this.out = out;
     }
 
     public void close() throws IOException {
-        int count = 0;
-        for (Map.Entry<String, Clazz> entry : classes.entrySet()) {
-            final String className = entry.getKey().replace('/', '.');
-            if (includeClasses != null) {
-                boolean included = false;
-                for (Pattern p : includeClasses) {
-                    included |= p.matcher(className).matches();
-                }
-                if (!included) {
-                    continue;
-                }
+        if (inheritedMembers && formatVersion != SignatureWriter.COMPACT_FORMAT) {
+            throw new IllegalStateException("Inherited members require the compact signature format");
+        }
+        if (inheritedMembers && maximumClassesInMemory > 0) {
+            throw new IllegalStateException("Inherited members require all classes in memory");
+        }
+        try {
+            Map<String, Clazz> selected = new LinkedHashMap<>();
+            SignatureWriter writer;
+            if (inheritedMembers) {
+                writer = new CompactSignatureWriter(out, true);
+            } else {
+                writer = SignatureWriter.create(out, formatVersion);
             }
-            if (excludeClasses != null) {
-                boolean excluded = false;
-                for (Pattern p : excludeClasses) {
-                    excluded |= p.matcher(className).matches();
+            if (maximumClassesInMemory > 0) {
+                writer.setMaximumClassesInMemory(maximumClassesInMemory, temporaryDirectory);
+            }
+            int count = 0;
+            if (runs.isEmpty()) {
+                for (Clazz.Builder builder : classes.values()) {
+                    Clazz clazz = builder.build();
+                    if (isSelected(clazz)) {
+                        selected.put(clazz.getName(), clazz);
+                    }
                 }
-                if (excluded) {
-                    continue;
+            } else {
+                spill();
+                try (ClazzRun.Merger merger = ClazzRun.merge(runs, ClazzRun.MAXIMUM_RUNS_MERGED, temporaryDirectory)) {
+                    Clazz clazz;
+                    while ((clazz = merger.read()) != null) {
+                        if (isSelected(clazz)) {
+                            writer.write(clazz);
+                            count++;
+                        }
+                    }
                 }
             }
-            count++;
-            logger.debug(className);
-
-            oos.writeObject(entry.getValue());
+            if (inheritedMembers) {
+                MemberTable.flatten(selected);
+            }
+            for (Clazz clazz : selected.values()) {
+                writer.write(clazz);
+                count++;
+            }
+            writer.close();
+            logger.info("Wrote signatures for " + count + " classes.");
+        } finally {
+            for (ClazzRun run : runs) {
+                run.close();
+            }
+            runs.clear();
         }
-        oos.writeObject(null); // EOF marker
-        logger.info("Wrote signatures for " + count + " classes.");
-        oos.close();
         if (!foundSome) {
             throw new IOException("No index is written");
         }
     }
 
+    /**
+     * Returns the highest number of classes kept in memory at once so far.
+     */
+    int getPeakClassesInMemory() {
+        return peakClassesInMemory.get();
+    }
+
+    private boolean isSelected(Clazz clazz) {
+        final String className = clazz.getName().replace('/', '.');
+        if (!isIncluded(className)) {
+            return false;
+        }
+        logger.debug(className);
+        return true;
+    }
+
+    /**
+     * Returns whether the class is included and not excluded, so that the class files of other classes in jar files
+     * and below paths are not even read. Such classes were still found, so no error is reported if all classes are
+     * excluded, like when reading them.
+     */
     @Override
-    protected void process(String name, InputStream image) throws IOException {
-        logger.debug(name);
+    protected boolean isSelected(String className) {
         foundSome = true;
-        ClassReader cr = new ClassReader(image);
-        SignatureVisitor v = new SignatureVisitor();
-        cr.accept(v, 0);
-        v.end();
+        return isIncluded(className);
+    }
+
+    private boolean isIncluded(String className) {
+        return (includes == null || includes.matches(className)) && (excludes == null || !excludes.matches(className));
     }
 
-    private class SignatureVisitor extends ClassVisitor {
-        private Clazz clazz;
+    /**
+     * Writes the classes in memory to a temporary file, if there are any.
+     */
+    private void spill() throws IOException {
+        spill(classes, runs);
+    }
 
-        public SignatureVisitor() {
-            super(Opcodes.ASM9);
+    /**
+     * Writes the given classes to a temporary file added to the given runs, if there are any.
+     */
+    private void spill(Map<String, Clazz.Builder> classes, List<ClazzRun> runs) throws IOException {
+        if (!classes.isEmpty()) {
+            List<Clazz> spilled = new ArrayList<>(classes.size());
+            for (Clazz.Builder builder : classes.values()) {
+                spilled.add(builder.build());
+            }
+            runs.add(ClazzRun.spill(spilled, temporaryDirectory));
+            classesInMemory.addAndGet(-classes.size());
+            classes.clear();
         }
+    }
 
-        @Override
-        public void visit(
-                int version, int access, String name, String signature, String superName, String[] interfaces) {
-            this.clazz = new Clazz(name, superName, interfaces);
+    /**
+     * Processes the class files below the given path. With more than one {@link #setThreads(int) thread}, each
+     * directory directly below the path, like a module of <code>jrt:/modules</code>, is scanned by a worker, and the
+     * classes found are merged in the order the directories would be visited by a single thread, so the signature is
+     * the same.
+     */
+    @Override
+    public void process(Path path) throws IOException {
+        if (threads == 1 || !Files.isDirectory(path)) {
+            super.process(path);
+            return;
+        }
+        List<Path> directories = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(path)) {
+            for (Path entry : entries) {
+                if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                    directories.add(entry);
+                } else if (entry.getFileName().toString().endsWith(".class")) {
+                    // class files next to the directories are visited along with them, keep it simple
+                    super.process(path);
+                    return;
+                }
+            }
         }
 
-        public void end() throws IOException {
-            Clazz cur = classes.get(clazz.getName());
-            if (cur == null) {
-                classes.put(clazz.getName(), clazz);
-            } else {
-                classes.put(clazz.getName(), new Clazz(clazz, cur));
+        List<Source> sources = new ArrayList<>();
+        for (Path directory : directories) {
+            sources.add(visitor -> visitor.process(directory, path));
+        }
+        processInParallel(sources, path.toString());
+    }
+
+    /**
+     * Processes the given files one after the other, like {@link #process(File)}. Unlike {@link #process(File[])},
+     * the files are not sorted, so that earlier classes, like those of the boot classpath, are merged before later
+     * ones. With more than one {@link #setThreads(int) thread}, each file is scanned by a worker, and the classes
+     * found are merged in the order of the files, so the signature is the same.
+     *
+     * @param files the jar files and directories to process, in order.
+     * @since 1.28
+     */
+    public void processAll(List<File> files) throws IOException {
+        if (threads == 1 || files.size() < 2) {
+            for (File file : files) {
+                process(file);
             }
+            return;
+        }
+        List<Source> sources = new ArrayList<>();
+        for (File file : files) {
+            sources.add(visitor -> visitor.process(file));
         }
+        processInParallel(sources, files.toString());
+    }
 
-        @Override
-        public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
-            clazz.getSignatures().add(name + desc);
-            return null;
+    /**
+     * Something the classes can be collected from, a directory or a file.
+     */
+    private interface Source {
+        void process(ClassFileVisitor visitor) throws IOException;
+    }
+
+    /**
+     * Scans the sources with the configured number of threads and adds their classes in the order of the sources.
+     * Only as many sources as there are threads are scanned ahead of the one added next, and with a
+     * {@link #setMaximumClassesInMemory(int) maximum}, this builder and each worker share it and spill their classes
+     * once they hold their share.
+     */
+    private void processInParallel(List<Source> sources, String description) throws IOException {
+        int workers = threads;
+        int previousThreshold = spillThreshold;
+        if (maximumClassesInMemory > 0) {
+            workers = Math.min(threads, maximumClassesInMemory - 1);
+            if (workers < 1) {
+                for (Source source : sources) {
+                    source.process(this);
+                }
+                return;
+            }
+            spillThreshold = maximumClassesInMemory / (workers + 1);
+            if (classes.size() >= spillThreshold) {
+                spill();
+            }
+        }
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        Deque<Future<Scanned>> pending = new ArrayDeque<>();
+        Iterator<Source> next = sources.iterator();
+        try {
+            while (next.hasNext() || !pending.isEmpty()) {
+                while (pending.size() < workers && next.hasNext()) {
+                    Source source = next.next();
+                    pending.add(pool.submit(() -> scan(source)));
+                }
+                add(pending.removeFirst().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while processing " + description, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            spillThreshold = previousThreshold;
+            pool.shutdown();
+            // wait for the sources still being scanned after a failure, so their temporary files are deleted
+            for (Future<Scanned> future : pending) {
+                try {
+                    future.get().close();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ExecutionException e) {
+                    // the worker deleted its temporary files
+                }
+            }
         }
+    }
+
+    /**
+     * The classes a worker found in one source, the earlier ones spilled to temporary files, oldest first.
+     */
+    private static final class Scanned implements Closeable {
+        final Map<String, Clazz.Builder> classes = new TreeMap<>();
+
+        final List<ClazzRun> runs = new ArrayList<>();
+
+        boolean found;
 
         @Override
-        public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
-            clazz.getSignatures().add(name + "#" + desc);
-            return null;
+        public void close() throws IOException {
+            for (ClazzRun run : runs) {
+                run.close();
+            }
+        }
+    }
+
+    /**
+     * Collects the classes of the given source, merged like {@link #process(String, InputStream)} does.
+     */
+    private Scanned scan(Source source) throws IOException {
+        final Scanned scanned = new Scanned();
+        ClassFileVisitor visitor = new ClassFileVisitor(logger) {
+            @Override
+            protected void process(String name, InputStream image) throws IOException {
+                logger.debug(name);
+                scanned.found = true;
+                Clazz clazz = visit(image);
+                if (isIncluded(clazz.getName().replace('/', '.'))) {
+                    merge(scanned.classes, new Clazz.Builder(clazz));
+                    if (spillThreshold > 0 && scanned.classes.size() >= spillThreshold) {
+                        spill(scanned.classes, scanned.runs);
+                    }
+                }
+            }
+
+            @Override
+            protected boolean isSelected(String className) {
+                scanned.found = true;
+                return isIncluded(className);
+            }
+        };
+        visitor.setCheckJars(isCheckJars());
+        boolean scannedAll = false;
+        try {
+            source.process(visitor);
+            scannedAll = true;
+        } finally {
+            if (!scannedAll) {
+                scanned.close();
+            }
+        }
+        return scanned;
+    }
+
+    /**
+     * Adds the classes a worker found after those found before, spilling the classes in memory first if the worker
+     * spilled some of its own, so that the runs stay ordered oldest first.
+     */
+    private void add(Scanned scanned) throws IOException {
+        if (!scanned.runs.isEmpty()) {
+            try {
+                spill();
+            } finally {
+                runs.addAll(scanned.runs);
+            }
+        }
+        for (Clazz.Builder builder : scanned.classes.values()) {
+            classesInMemory.decrementAndGet();
+            add(builder);
+        }
+        foundSome |= scanned.found;
+    }
+
+    @Override
+    protected void process(String name, InputStream image) throws IOException {
+        logger.debug(name);
+        foundSome = true;
+        Clazz clazz = visit(image);
+        if (isIncluded(clazz.getName().replace('/', '.'))) {
+            add(new Clazz.Builder(clazz));
+        }
+    }
+
+    /**
+     * Reads the signature of a class from its header and from the names and descriptors of its fields and methods,
+     * see {@link DeclaredMembers}.
+     */
+    private static Clazz visit(InputStream image) throws IOException {
+        ClassReader cr = new ClassReader(image);
+        Clazz clazz = new Clazz(cr.getClassName(), cr.getSuperName(), cr.getInterfaces());
+        DeclaredMembers.accept(cr, new char[cr.getMaxStringLength()], (name, desc) -> {
+            clazz.getSignatures().add(desc.charAt(0) == '(' ? name + desc : name + "#" + desc);
+            return true;
+        });
+        return clazz;
+    }
+
+    private void add(Clazz.Builder builder) throws IOException {
+        merge(classes, builder);
+        if (spillThreshold > 0 && classes.size() >= spillThreshold) {
+            spill();
+        }
+    }
+
+    /**
+     * Adds the given class to the given classes, merged into the class of the same name already visited, if any.
+     */
+    private void merge(Map<String, Clazz.Builder> classes, Clazz.Builder builder) {
+        Clazz.Builder cur = classes.get(builder.getName());
+        if (cur == null) {
+            classes.put(builder.getName(), builder);
+            peakClassesInMemory.accumulateAndGet(classesInMemory.incrementAndGet(), Math::max);
+        } else {
+            cur.merge(builder);
         }
     }
 
@@ -0,0 +1,216 @@
+package org.codehaus.mojo.animal_sniffer;
+
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2008 Kohsuke Kawaguchi and codehaus.org.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.lang.ref.SoftReference;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps loaded signatures in memory, so that checking many modules against the same signature, or checking the
+ * same module again in a long-running build process, loads the signature only once.
+ * <p>
+ * Signatures are identified by their canonical path, and reloaded if their size, modification time or a checksum of
+ * their first and last {@link #FINGERPRINT_BLOCK_SIZE} bytes changed. The end of a signature file holds the checksum
+ * of its uncompressed content, so a file rewritten with the same size and time is told apart too. At
+ * most {@link #getMaximumSize()} signatures are kept, the least recently used ones are dropped first. The loaded
+ * classes are only softly referenced, so that they can be reclaimed when memory runs low.
+ *
+ * @since 1.28
+ */
+public final class SignatureCache {
+    /**
+     * The default maximum number of signatures to keep.
+     */
+    public static final int DEFAULT_MAXIMUM_SIZE = 8;
+
+    private static final int FINGERPRINT_BLOCK_SIZE = 8192;
+
+    private static final SignatureCache INSTANCE = new SignatureCache(DEFAULT_MAXIMUM_SIZE);
+
+    private final Map<String, CachedSignature> entries = new LinkedHashMap<String, CachedSignature>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedSignature> eldest) {
+            return size() > maximumSize;
+        }
+    };
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private volatile int maximumSize;
+
+    public SignatureCache(int maximumSize) {
+        setMaximumSize(maximumSize);
+    }
+
+    /**
+     * Returns the cache shared by everything loaded by the same class loader.
+     */
+    public static SignatureCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the classes of the given signature file, loading them if they are not cached or if the file changed
+     * since they were loaded.
+     *
+     * @return the classes by name; the map and the classes must not be modified.
+     */
+    public Map<String, Clazz> get(File signature) throws IOException {
+        File file = signature.getCanonicalFile();
+        long length = file.length();
+        long lastModified = file.lastModified();
+        long fingerprint = fingerprint(file);
+        CachedSignature entry;
+        synchronized (entries) {
+            entry = entries.get(file.getPath());
+            if (entry == null
+                    || entry.length != length
+                    || entry.lastModified != lastModified
+                    || entry.fingerprint != fingerprint) {
+                entry = new CachedSignature(length, lastModified, fingerprint);
+                entries.put(file.getPath(), entry);
+            }
+        }
+        // load outside of the lock on the entries, so that different signatures can be loaded at the same time
+        synchronized (entry) {
+            Map<String, Clazz> classes = entry.classes == null ? null : entry.classes.get();
+            if (classes != null) {
+                hits.incrementAndGet();
+                return classes;
+            }
+            misses.incrementAndGet();
+            try (InputStream in = new FileInputStream(file)) {
+                classes = Collections.unmodifiableMap(SignatureChecker.loadClasses(in));
+            }
+            entry.classes = new SoftReference<>(classes);
+            return classes;
+        }
+    }
+
+    /**
+     * Returns the checksum of the first and last block of the file, so that a changed file is noticed without reading
+     * all of it.
+     */
+    private static long fingerprint(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] block = new byte[FINGERPRINT_BLOCK_SIZE];
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            long length = in.length();
+            int n = (int) Math.min(length, block.length);
+            in.readFully(block, 0, n);
+            crc.update(block, 0, n);
+            if (length > block.length) {
+                n = (int) Math.min(length - block.length, block.length);
+                in.seek(length - n);
+                in.readFully(block, 0, n);
+                crc.update(block, 0, n);
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Returns how often {@link #get(File)} was answered from the cache.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Returns how often {@link #get(File)} had to load a signature.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Sets the maximum number of signatures to keep, <code>0</code> disables caching.
+     */
+    public void setMaximumSize(int maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("maximumSize must not be negative: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        synchronized (entries) {
+            while (entries.size() > maximumSize) {
+                entries.remove(entries.keySet().iterator().next());
+            }
+        }
+    }
+
+    /**
+     * Returns the number of signatures currently cached, including ones whose classes were reclaimed.
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SignatureCache[size=" + size() + ", hits=" + hits + ", misses=" + misses + "]";
+    }
+
+    private static final class CachedSignature {
+        private final long length;
+
+        private final long lastModified;
+
+        private final long fingerprint;
+
+        private SoftReference<Map<String, Clazz>> classes;
+
+        CachedSignature(long length, long lastModified, long fingerprint) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.fingerprint = fingerprint;
+        }
+    }
+}
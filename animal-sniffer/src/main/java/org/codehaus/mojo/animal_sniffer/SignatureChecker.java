@@ -25,21 +25,30 @@ package org.codehaus.mojo.animal_sniffer;
  *
  */
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectInputStream;
 import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Pattern;
-import java.util.zip.GZIPInputStream;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.codehaus.mojo.animal_sniffer.logging.Logger;
 import org.codehaus.mojo.animal_sniffer.logging.PrintWriterLogger;
@@ -72,6 +81,19 @@ public class SignatureChecker extends ClassFileVisitor {
      */
     public static final String PREVIOUS_ANNOTATION_FQN = "org.jvnet.animal_sniffer.IgnoreJRERequirement";
 
+    // constant pool tags, see isResolvable and resultKey
+    private static final int CONSTANT_UTF8 = 1;
+
+    private static final int CONSTANT_CLASS = 7;
+
+    private static final int CONSTANT_FIELDREF = 9;
+
+    private static final int CONSTANT_METHODREF = 10;
+
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+
+    private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+
     private final Map<String, Clazz> classes;
 
     private final Logger logger;
@@ -80,18 +102,74 @@ public class SignatureChecker extends ClassFileVisitor {
      * Classes in this packages are considered to be resolved elsewhere and
      * thus not a subject of the error checking when referenced.
      */
-    private final List<MatchRule> ignoredPackageRules;
+    private final NameMatcher ignoredPackages;
+
+    /**
+     * The patterns {@link #ignoredPackages} is compiled from, sorted.
+     */
+    private final Set<String> ignorePatterns;
 
-    private final Set<String> ignoredPackages;
+    /**
+     * Whether a type is matched by {@link #ignoredPackages}, shared by all classes checked. Holds at most
+     * {@link #MAX_IGNORE_DECISIONS} types, further types are matched every time.
+     */
+    private final Map<String, Boolean> ignoreDecisions = new ConcurrentHashMap<>();
+
+    private static final int MAX_IGNORE_DECISIONS = 100000;
 
-    private final Set<String> ignoredOuterClassesOrMethods = new HashSet<>();
+    private final Set<String> ignoredOuterClassesOrMethods = ConcurrentHashMap.newKeySet();
 
-    private boolean hadError = false;
+    /**
+     * The names of the classes found while scanning in the current {@link #process(File)} call.
+     */
+    private final Set<String> scannedClasses = new HashSet<>();
+
+    /**
+     * Whether a member is inherited, by the name of the class, then by the name and then by the descriptor of the
+     * member, so that lookups need not build the signature of the member.
+     */
+    private final Map<String, Map<String, Map<String, Boolean>>> inheritedMembers = new ConcurrentHashMap<>();
+
+    /**
+     * The maximum size of the class file images kept from scanning for checking, see {@link #scannedImages}.
+     */
+    private static final long MAXIMUM_SCANNED_BYTES = 64L << 20;
+
+    private volatile boolean hadError = false;
+
+    private int threads = 1;
+
+    /**
+     * The workers of the current {@link #process(File)} call if checking in parallel, otherwise {@code null}.
+     */
+    private ThreadPoolExecutor executor;
+
+    private List<Future<CheckedClass>> pending;
+
+    private int depth;
+
+    private boolean scanning;
+
+    /**
+     * The images of the class files read while scanning, by name, kept up to {@link #MAXIMUM_SCANNED_BYTES} in total so
+     * that checking need not read and decompress them again.
+     */
+    private Map<String, byte[]> scannedImages;
+
+    private long scannedBytes;
 
     private List<File> sourcePath;
 
     private Collection<String> annotationDescriptors;
 
+    private CheckResultCache resultCache;
+
+    /**
+     * The digest of everything besides the class file and the {@link #scannedClasses} it refers to the results of the
+     * current {@link #process(File)} call depend on, if a {@link #resultCache} is set.
+     */
+    private byte[] resultKeyPrefix;
+
     public static void main(String[] args) throws Exception {
         Set<String> ignoredPackages = new HashSet<>();
         ignoredPackages.add("org.jvnet.animal_sniffer.*");
@@ -107,15 +185,12 @@ public class SignatureChecker extends ClassFileVisitor {
 
     public SignatureChecker(Map<String, Clazz> classes, Set<String> ignoredPackages, Logger logger) throws IOException {
         this.classes = classes;
-        this.ignoredPackages = new HashSet<>();
-        this.ignoredPackageRules = new LinkedList<>();
+        Set<String> patterns = new TreeSet<>();
         for (String wildcard : ignoredPackages) {
-            if (wildcard.indexOf('*') == -1 && wildcard.indexOf('?') == -1) {
-                this.ignoredPackages.add(wildcard.replace('.', '/'));
-            } else {
-                this.ignoredPackageRules.add(newMatchRule(wildcard.replace('.', '/')));
-            }
+            patterns.add(wildcard.replace('.', '/'));
         }
+        this.ignorePatterns = patterns;
+        this.ignoredPackages = NameMatcher.compile(patterns);
         this.annotationDescriptors = new HashSet<>();
         this.annotationDescriptors.add(toAnnotationDescriptor(ANNOTATION_FQN));
         this.annotationDescriptors.add(toAnnotationDescriptor(PREVIOUS_ANNOTATION_FQN));
@@ -123,18 +198,29 @@ public class SignatureChecker extends ClassFileVisitor {
         this.logger = logger;
     }
 
+    /**
+     * Loads the class signatures from signature data in any of the supported formats.
+     * <p>
+     * Class names and member signatures are canonicalized, so that a member signature like
+     * <code>toString()Ljava/lang/String;</code> shared by thousands of classes is only held once in memory.
+     *
+     * @see SignatureReader#open(InputStream)
+     */
     public static Map<String, Clazz> loadClasses(InputStream in) throws IOException {
+        return loadClasses(in, new StringPool());
+    }
+
+    static Map<String, Clazz> loadClasses(InputStream in, StringPool stringPool) throws IOException {
         Map<String, Clazz> classes = new HashMap<>();
-        try (ObjectInputStream ois = new SignatureObjectInputStream(new GZIPInputStream(in))) {
+        try (SignatureReader reader = SignatureReader.open(in)) {
+            reader.setStringPool(stringPool);
             while (true) {
-                Clazz c = (Clazz) ois.readObject();
+                Clazz c = reader.read();
                 if (c == null) {
                     return classes; // finished
                 }
                 classes.put(c.getName(), c);
             }
-        } catch (ClassNotFoundException e) {
-            throw new NoClassDefFoundError(e.getMessage());
         }
     }
 
@@ -143,6 +229,21 @@ public class SignatureChecker extends ClassFileVisitor {
         this.sourcePath = sourcePath;
     }
 
+    /**
+     * Sets the number of threads used to check class files. With more than one thread the class files are still
+     * read by the calling thread, but checked by a pool of workers; the errors are logged per class, sorted by the
+     * class file name, once all the class files passed to a {@code process} call are checked.
+     *
+     * @param threads the number of worker threads, {@code 1} (the default) checks the class files one by one
+     * @since 1.28
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive: " + threads);
+        }
+        this.threads = threads;
+    }
+
     /**
      * Sets the annotation type(s) that this checker should consider to ignore annotated
      * methods, classes or fields.
@@ -164,80 +265,551 @@ public class SignatureChecker extends ClassFileVisitor {
         }
     }
 
+    /**
+     * Sets the cache to look up the results of class files which were checked before with the same configuration,
+     * and to keep the results of the class files checked now in. The cache has to be saved by the caller.
+     *
+     * @since 1.28
+     */
+    public void setResultCache(CheckResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    @Override
+    public void process(File[] files) throws IOException {
+        walk(() -> super.process(files));
+    }
+
+    @Override
+    public void process(File file) throws IOException {
+        walk(() -> super.process(file));
+    }
+
+    @Override
+    public void process(Path path) throws IOException {
+        walk(() -> super.process(path));
+    }
+
+    private interface Walk {
+        void run() throws IOException;
+    }
+
+    /**
+     * Runs the top level {@code process} call in two phases. The first phase only scans the classes for the ignore
+     * annotations, so that the second phase, which does the actual checking, knows about every ignored outer class
+     * or method regardless of the order in which the classes are visited. The images read while scanning are kept
+     * for checking, up to {@link #MAXIMUM_SCANNED_BYTES}. If checking in parallel the results of the workers are
+     * reported in the order the classes were visited before returning, as they are when checking serially.
+     */
+    private void walk(Walk walk) throws IOException {
+        if (depth > 0) {
+            depth++;
+            try {
+                walk.run();
+            } finally {
+                depth--;
+            }
+            return;
+        }
+        depth++;
+        scanning = true;
+        scannedImages = new HashMap<>();
+        scannedBytes = 0;
+        scannedClasses.clear();
+        try {
+            walk.run();
+        } catch (IOException | RuntimeException | Error e) {
+            scannedImages = null;
+            throw e;
+        } finally {
+            scanning = false;
+            depth--;
+        }
+        if (resultCache != null) {
+            resultKeyPrefix = resultKeyPrefix();
+        }
+        depth++;
+        if (threads > 1) {
+            // a bounded queue keeps the number of class file images held in memory in check, the reading thread
+            // helps out with the checking when the workers fall behind
+            executor = new ThreadPoolExecutor(
+                    threads,
+                    threads,
+                    0L,
+                    TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(threads * 4),
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+            pending = new ArrayList<>();
+        }
+        try {
+            walk.run();
+        } catch (IOException | RuntimeException | Error e) {
+            if (executor != null) {
+                executor.shutdownNow();
+                executor = null;
+                pending = null;
+            }
+            throw e;
+        } finally {
+            depth--;
+            scannedImages = null;
+        }
+        if (executor != null) {
+            collect();
+        }
+    }
+
+    private void collect() throws IOException {
+        List<Future<CheckedClass>> futures = pending;
+        pending = null;
+        executor.shutdown();
+        executor = null;
+
+        List<CheckedClass> checked = new ArrayList<>(futures.size());
+        IOException failure = null;
+        for (Future<CheckedClass> future : futures) {
+            try {
+                checked.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while checking class files", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof BadClassFileException) {
+                    BadClassFileException bad = (BadClassFileException) e.getCause();
+                    checked.add(bad.checked);
+                    if (failure == null) {
+                        failure = (IOException) bad.getCause();
+                    }
+                } else if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                } else {
+                    throw new IOException(e.getCause());
+                }
+            }
+        }
+        for (CheckedClass c : checked) {
+            report(c);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Digests the configuration of the cache and of this checker, including the outer classes and methods found to be
+     * ignored while scanning. The ignore patterns naming scanned classes are left out, as callers usually ignore every
+     * class they check; which of them a class refers to is part of its own key instead, see {@link #resultKey}, so that
+     * adding or removing a class does not invalidate the results of the classes not referring to it.
+     */
+    private byte[] resultKeyPrefix() {
+        MessageDigest digest = newResultKeyDigest();
+        update(digest, resultCache.getConfiguration());
+        for (String pattern : ignorePatterns) {
+            if (!scannedClasses.contains(pattern)) {
+                update(digest, pattern);
+            }
+        }
+        update(digest, "");
+        for (String descriptor : new TreeSet<>(annotationDescriptors)) {
+            update(digest, descriptor);
+        }
+        update(digest, "");
+        if (sourcePath != null) {
+            for (File root : sourcePath) {
+                update(digest, root.getAbsolutePath());
+            }
+        }
+        update(digest, "");
+        for (String ignored : new TreeSet<>(ignoredOuterClassesOrMethods)) {
+            update(digest, ignored);
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Digests the {@link #resultKeyPrefix}, the class file and, sorted, the scanned classes named in its constant pool
+     * together with whether they are ignored. Any name within a descriptor or signature counts, which may be more than
+     * checking the class looks up.
+     */
+    private byte[] resultKey(ClassReader cr, byte[] image) {
+        Set<String> referenced = new TreeSet<>();
+        char[] buffer = new char[cr.getMaxStringLength()];
+        for (int i = 1; i < cr.getItemCount(); i++) {
+            int offset = cr.getItem(i);
+            if (offset != 0 && cr.readByte(offset - 1) == CONSTANT_UTF8) {
+                addScannedClasses(cr.readUTF8(offset, buffer), referenced);
+            }
+        }
+        MessageDigest digest = newResultKeyDigest();
+        digest.update(resultKeyPrefix);
+        digest.update(image);
+        for (String type : referenced) {
+            update(digest, type);
+            digest.update((byte) (isIgnored(type) ? 1 : 0));
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Adds the scanned classes found in a constant pool string, which is either a name itself or a descriptor or
+     * signature naming classes between an <code>L</code> and a terminator.
+     */
+    private void addScannedClasses(String value, Set<String> referenced) {
+        if (scannedClasses.contains(value)) {
+            referenced.add(value);
+        }
+        for (int start = value.indexOf('L'); start != -1; start = value.indexOf('L', start + 1)) {
+            int end = start + 1;
+            while (end < value.length() && ";<.:".indexOf(value.charAt(end)) == -1) {
+                end++;
+            }
+            if (end > start + 1) {
+                String type = value.substring(start + 1, end);
+                if (scannedClasses.contains(type)) {
+                    referenced.add(type);
+                }
+            }
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static MessageDigest newResultKeyDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every Java platform supports SHA-256
+        }
+    }
+
     @Override
     protected void process(final String name, InputStream image) throws IOException {
+        if (scanning) {
+            byte[] bytes = readImage(image);
+            scan(new ClassReader(bytes));
+            if (scannedBytes + bytes.length <= MAXIMUM_SCANNED_BYTES) {
+                scannedImages.put(name, bytes);
+                scannedBytes += bytes.length;
+            }
+            return;
+        }
+        byte[] scanned = scannedImages != null ? scannedImages.remove(name) : null;
+        if (executor == null) {
+            CheckedClass checked = new CheckedClass(name);
+            try {
+                check(checked, scanned != null ? scanned : readImage(image));
+            } finally {
+                report(checked);
+            }
+        } else {
+            // read on this thread, check on the workers
+            final byte[] bytes = scanned != null ? scanned : readImage(image);
+            pending.add(executor.submit(() -> {
+                CheckedClass checked = new CheckedClass(name);
+                try {
+                    check(checked, bytes);
+                } catch (IOException e) {
+                    throw new BadClassFileException(checked, e);
+                }
+                return checked;
+            }));
+        }
+    }
+
+    private void scan(ClassReader cr) {
+        try {
+            cr.accept(new ScanningVisitor(), ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        } catch (ArrayIndexOutOfBoundsException e) {
+            // reported when checking the class
+        }
+    }
+
+    private static byte[] readImage(InputStream image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = image.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private void check(CheckedClass checked, byte[] image) throws IOException {
         ClassReader cr = new ClassReader(image);
+        byte[] key = null;
+        if (resultCache != null) {
+            try {
+                key = resultKey(cr, image);
+            } catch (ArrayIndexOutOfBoundsException e) {
+                key = null; // reported as a bad class file when checking it, never cached
+            }
+            List<String> errors = key != null ? resultCache.get(checked.name, key) : null;
+            if (errors != null) {
+                checked.errors.addAll(errors);
+                return;
+            }
+        }
+        check(checked, cr);
+        if (key != null) {
+            resultCache.put(checked.name, key, checked.errors);
+        }
+    }
 
+    private void check(CheckedClass checked, ClassReader cr) throws IOException {
         try {
-            cr.accept(new CheckingVisitor(name), 0);
+            if (isResolvable(cr)) {
+                return; // nothing the class refers to can be missing
+            }
+            // line numbers and source files only matter for the error messages, and the frames only for multi catch
+            // blocks, so first check without them and only read the class again in full if needed
+            CheckingVisitor quick = new CheckingVisitor(new CheckedClass(checked.name), false);
+            cr.accept(quick, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+            if (!quick.checked.errors.isEmpty() || quick.needsFrames) {
+                cr.accept(new CheckingVisitor(checked, true), 0);
+            }
         } catch (ArrayIndexOutOfBoundsException e) {
-            logger.error("Bad class file " + name);
+            checked.bad = true;
             // MANIMALSNIFFER-9 it is a pity that ASM does not throw a nicer error on encountering a malformed
             // class file.
-            throw new IOException("Bad class file " + name, e);
+            throw new IOException("Bad class file " + checked.name, e);
         }
     }
 
-    private interface MatchRule {
-        boolean matches(String text);
+    /**
+     * Returns whether every type and member that checking the given class would look up is ignored or found, using
+     * only the constant pool and the field and method declarations, so that the class cannot have any errors and
+     * its code need not be visited. The constant pool may refer to more than the code does, so a class for which
+     * this returns false may still turn out to be fine.
+     */
+    boolean isResolvable(ClassReader cr) {
+        char[] buffer = new char[cr.getMaxStringLength()];
+        for (int i = 1; i < cr.getItemCount(); i++) {
+            int offset = cr.getItem(i);
+            if (offset == 0) {
+                continue; // second slot of a long or double
+            }
+            switch (cr.readByte(offset - 1)) {
+                case CONSTANT_CLASS:
+                    String type = cr.readUTF8(offset, buffer);
+                    if (!(type.charAt(0) == '[' ? isKnownType(type, 0) : isKnownType(type))) {
+                        return false;
+                    }
+                    break;
+                case CONSTANT_FIELDREF:
+                case CONSTANT_METHODREF:
+                case CONSTANT_INTERFACE_METHODREF:
+                    String owner = cr.readClass(offset, buffer);
+                    int nameAndType = cr.getItem(cr.readUnsignedShort(offset + 2));
+                    String name = cr.readUTF8(nameAndType, buffer);
+                    String desc = cr.readUTF8(nameAndType + 2, buffer);
+                    if (owner.charAt(0) != '[' && !isIgnored(owner) && !find(owner, name, desc)) {
+                        return false;
+                    }
+                    if (desc.charAt(0) == '(' && !isKnownType(desc, desc.lastIndexOf(')') + 1)) {
+                        return false;
+                    }
+                    break;
+                case CONSTANT_INVOKE_DYNAMIC:
+                    String callSite = cr.readUTF8(cr.getItem(cr.readUnsignedShort(offset + 2)) + 2, buffer);
+                    if (!isKnownType(callSite, callSite.lastIndexOf(')') + 1)) {
+                        return false;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        // the types of the declared fields and the return types of the declared methods
+        return DeclaredMembers.accept(
+                cr, buffer, (name, desc) -> isKnownType(desc, desc.charAt(0) == '(' ? desc.lastIndexOf(')') + 1 : 0));
     }
 
-    private static class PrefixMatchRule implements SignatureChecker.MatchRule {
-        private final String prefix;
+    /**
+     * Returns whether the object type, or the element type of the array type, starting at the given position of a
+     * descriptor is ignored or found. Primitive types are always found.
+     */
+    private boolean isKnownType(String descriptor, int start) {
+        int i = start;
+        while (descriptor.charAt(i) == '[') {
+            i++;
+        }
+        return descriptor.charAt(i) != 'L' || isKnownType(descriptor.substring(i + 1, descriptor.length() - 1));
+    }
+
+    private boolean isKnownType(String type) {
+        return isIgnored(type) || classes.containsKey(type);
+    }
 
-        public PrefixMatchRule(String prefix) {
-            this.prefix = prefix;
+    private void report(CheckedClass checked) {
+        for (String error : checked.errors) {
+            hadError = true;
+            logger.error(error);
+        }
+        if (checked.bad) {
+            logger.error("Bad class file " + checked.name);
         }
+    }
 
-        @Override
-        public boolean matches(String text) {
-            return text.startsWith(prefix);
+    /**
+     * The outcome of checking a single class file.
+     */
+    private static final class CheckedClass {
+        private final String name;
+
+        private final List<String> errors = new ArrayList<>();
+
+        private boolean bad;
+
+        CheckedClass(String name) {
+            this.name = name;
         }
     }
 
-    private static class ExactMatchRule implements SignatureChecker.MatchRule {
-        private final String match;
+    private static final class BadClassFileException extends Exception {
+        private static final long serialVersionUID = 1L;
 
-        public ExactMatchRule(String match) {
-            this.match = match;
+        private final transient CheckedClass checked;
+
+        BadClassFileException(CheckedClass checked, IOException cause) {
+            super(cause);
+            this.checked = checked;
         }
+    }
 
-        @Override
-        public boolean matches(String text) {
-            return match.equals(text);
+    public boolean isSignatureBroken() {
+        return hadError;
+    }
+
+    private boolean isIgnored(String type) {
+        Boolean ignored = ignoreDecisions.get(type);
+        if (ignored == null) {
+            ignored = ignoredPackages.matches(type);
+            if (ignoreDecisions.size() < MAX_IGNORE_DECISIONS) {
+                ignoreDecisions.put(type, ignored);
+            }
         }
+        return ignored;
     }
 
-    private static class RegexMatchRule implements SignatureChecker.MatchRule {
-        private final Pattern regex;
+    /**
+     * If the given signature is found in the specified class or, unless it is a constructor or static initializer,
+     * in one of its super types, return true.
+     * <p>
+     * The outcome of looking up an inherited member is remembered for every type visited on the way, whether the
+     * member was found or not, so that looking it up again in the same or in a related type is a map lookup.
+     */
+    private boolean find(String owner, String name, String desc) {
+        if (owner == null) {
+            return false;
+        }
+        Clazz c = classes.get(owner);
+        if (c == null) {
+            return false;
+        }
+        if (c.hasMember(name, desc)) {
+            return true;
+        }
 
-        public RegexMatchRule(Pattern regex) {
-            this.regex = regex;
+        if (name.startsWith("<"))
+        // constructor and static initializer shouldn't go up the inheritance hierarchy
+        {
+            return false;
         }
 
-        @Override
-        public boolean matches(String text) {
-            return regex.matcher(text).matches();
+        if (c.isInheritedMembersKnown()) {
+            return c.inherits(name, desc);
+        }
+
+        Map<String, Boolean> members = inheritedMembers
+                .computeIfAbsent(owner, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(name, k -> new ConcurrentHashMap<>());
+        Boolean found = members.get(desc);
+        if (found == null) {
+            found = findInherited(c, name, desc);
+            members.put(desc, found);
         }
+        return found;
     }
 
-    private SignatureChecker.MatchRule newMatchRule(String matcher) {
-        int i = matcher.indexOf('*');
-        if (i == -1) {
-            return new ExactMatchRule(matcher);
+    private boolean findInherited(Clazz c, String name, String desc) {
+        if (find(c.getSuperClass(), name, desc)) {
+            return true;
         }
-        if (i == matcher.length() - 1) {
-            return new PrefixMatchRule(matcher.substring(0, i));
+
+        if (c.getSuperInterfaces() != null) {
+            for (int i = 0; i < c.getSuperInterfaces().length; i++) {
+                if (find(c.getSuperInterfaces()[i], name, desc)) {
+                    return true;
+                }
+            }
         }
-        return new RegexMatchRule(RegexUtils.compileWildcard(matcher));
+
+        return false;
     }
 
-    public boolean isSignatureBroken() {
-        return hadError;
+    private boolean isIgnoreAnnotation(String desc) {
+        for (String annoDesc : annotationDescriptors) {
+            if (desc.equals(annoDesc)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Collects the classes and methods which are annotated to be ignored, see {@link #walk(Walk)}.
+     */
+    private class ScanningVisitor extends ClassVisitor {
+        private String internalName;
+
+        ScanningVisitor() {
+            super(Opcodes.ASM9);
+        }
+
+        @Override
+        public void visit(
+                int version, int access, String name, String signature, String superName, String[] interfaces) {
+            internalName = name;
+            scannedClasses.add(name);
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+            if (isIgnoreAnnotation(desc)) {
+                ignoredOuterClassesOrMethods.add(internalName);
+            }
+            return null;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(
+                int access, final String name, final String desc, String signature, String[] exceptions) {
+            return new MethodVisitor(Opcodes.ASM9) {
+                @Override
+                public AnnotationVisitor visitAnnotation(String annoDesc, boolean visible) {
+                    if (isIgnoreAnnotation(annoDesc)) {
+                        ignoredOuterClassesOrMethods.add(internalName + "#" + name + desc);
+                    }
+                    return null;
+                }
+            };
+        }
     }
 
     private class CheckingVisitor extends ClassVisitor {
-        private final Set<String> ignoredPackageCache;
+        private final CheckedClass checked;
+
+        /**
+         * Whether the class is read with debug information and frames; otherwise the types of the exception handlers
+         * are checked as they are visited, and {@link #needsFrames} is set for multi catch blocks.
+         */
+        private final boolean full;
+
+        private boolean needsFrames;
 
         private String packagePrefix;
         private int line;
@@ -247,10 +819,11 @@ public class SignatureChecker extends ClassFileVisitor {
 
         private boolean ignoreClass = false;
 
-        public CheckingVisitor(String name) {
+        public CheckingVisitor(CheckedClass checked, boolean full) {
             super(Opcodes.ASM9);
-            this.ignoredPackageCache = new HashSet<>(50 * ignoredPackageRules.size());
-            this.name = name;
+            this.checked = checked;
+            this.full = full;
+            this.name = checked.name;
         }
 
         @Override
@@ -278,20 +851,10 @@ public class SignatureChecker extends ClassFileVisitor {
             }
         }
 
-        public boolean isIgnoreAnnotation(String desc) {
-            for (String annoDesc : annotationDescriptors) {
-                if (desc.equals(annoDesc)) {
-                    return true;
-                }
-            }
-            return false;
-        }
-
         @Override
         public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
             if (isIgnoreAnnotation(desc)) {
                 ignoreClass = true;
-                ignoredOuterClassesOrMethods.add(internalName);
             }
             return super.visitAnnotation(desc, visible);
         }
@@ -347,7 +910,6 @@ public class SignatureChecker extends ClassFileVisitor {
                 public AnnotationVisitor visitAnnotation(String annoDesc, boolean visible) {
                     if (isIgnoreAnnotation(annoDesc)) {
                         ignoreError = true;
-                        ignoredOuterClassesOrMethods.add(internalName + "#" + name + desc);
                     }
                     return super.visitAnnotation(annoDesc, visible);
                 }
@@ -360,10 +922,7 @@ public class SignatureChecker extends ClassFileVisitor {
                         if ("metafactory".equals(bsm.getName()) || "altMetafactory".equals(bsm.getName())) {
                             // check the method reference
                             Handle methodHandle = (Handle) bsmArgs[1];
-                            check(
-                                    methodHandle.getOwner(),
-                                    methodHandle.getName() + methodHandle.getDesc(),
-                                    ignoreError);
+                            check(methodHandle.getOwner(), methodHandle.getName(), methodHandle.getDesc(), ignoreError);
                             // check the functional interface type
                             checkType(Type.getReturnType(desc), ignoreError);
                         }
@@ -373,7 +932,7 @@ public class SignatureChecker extends ClassFileVisitor {
                 @Override
                 public void visitMethodInsn(int opcode, String owner, String name, String desc, boolean itf) {
                     checkType(Type.getReturnType(desc), ignoreError);
-                    check(owner, name + desc, ignoreError);
+                    check(owner, name, desc, ignoreError);
                 }
 
                 @Override
@@ -383,7 +942,7 @@ public class SignatureChecker extends ClassFileVisitor {
 
                 @Override
                 public void visitFieldInsn(int opcode, String owner, String name, String desc) {
-                    check(owner, name + '#' + desc, ignoreError);
+                    check(owner, name, desc, ignoreError);
                 }
 
                 @Override
@@ -394,6 +953,11 @@ public class SignatureChecker extends ClassFileVisitor {
                         // because we do not have the line number here
                         // and we need a list for a multi catch block
                         exceptionTypes.add(type);
+                        if (!full) {
+                            checkType(type, ignoreError);
+                            // the common super type of a multi catch block is only found in the frame
+                            needsFrames |= exceptionTypes.size() > 1;
+                        }
                     }
                 }
 
@@ -453,14 +1017,14 @@ public class SignatureChecker extends ClassFileVisitor {
             }
         }
 
-        private void check(String owner, String sig, boolean ignoreError) {
+        private void check(String owner, String name, String desc, boolean ignoreError) {
             if (shouldBeIgnored(owner, ignoreError)) {
                 return;
             }
-            if (find(classes.get(owner), sig)) {
+            if (find(owner, name, desc)) {
                 return; // found it
             }
-            error(owner, sig);
+            error(owner, MemberIndex.signature(name, desc));
         }
 
         private boolean shouldBeIgnored(String type, boolean ignoreError) {
@@ -471,60 +1035,17 @@ public class SignatureChecker extends ClassFileVisitor {
                 return true; // array
             }
 
-            if (ignoredPackages.contains(type) || ignoredPackageCache.contains(type)) {
-                return true;
-            }
-            for (MatchRule rule : ignoredPackageRules) {
-                if (rule.matches(type)) {
-                    ignoredPackageCache.add(type);
-                    return true;
-                }
-            }
-            return false;
-        }
-
-        /**
-         * If the given signature is found in the specified class, return true.
-         */
-        private boolean find(Clazz c, String sig) {
-            if (c == null) {
-                return false;
-            }
-            if (c.getSignatures().contains(sig)) {
-                return true;
-            }
-
-            if (sig.startsWith("<"))
-            // constructor and static initializer shouldn't go up the inheritance hierarchy
-            {
-                return false;
-            }
-
-            if (find(classes.get(c.getSuperClass()), sig)) {
-                return true;
-            }
-
-            if (c.getSuperInterfaces() != null) {
-                for (int i = 0; i < c.getSuperInterfaces().length; i++) {
-                    if (find(classes.get(c.getSuperInterfaces()[i]), sig)) {
-                        return true;
-                    }
-                }
-            }
-
-            return false;
+            return isIgnored(type);
         }
 
         private void error(String type, String sig) {
-            hadError = true;
-
             String location = "";
             if (currentFieldName != null) {
                 location = ": Field " + currentFieldName;
             } else if (line > 0) {
                 location = ":" + line;
             }
-            logger.error(name + location + ": Undefined reference: " + toSourceForm(type, sig));
+            checked.errors.add(name + location + ": Undefined reference: " + toSourceForm(type, sig));
         }
     }
 
@@ -0,0 +1,375 @@
+package org.codehaus.mojo.animal_sniffer;
+
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2008 Kohsuke Kawaguchi and codehaus.org.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A read-only signature which is memory mapped from an index file and decodes class signatures only when they are
+ * looked up.
+ * <p>
+ * The index file is uncompressed and consists of:
+ * <pre>
+ * header    : magic ("ASIX"), u2 version, u2 flags, int poolSize, int classCount
+ * offsets   : poolSize * int (file offset of each string of the pool)
+ * directory : classCount * (int name, int record offset), sorted by class name
+ * pool      : poolSize * (int length, UTF-8 bytes)
+ * records   : classCount * record, encoded like the records of {@link CompactSignatureWriter}
+ * </pre>
+ * A lookup binary searches the directory and decodes just the strings and the record it needs, so opening a
+ * signature takes the same time regardless of its size. Decoded classes are kept, so each class is decoded at most
+ * once. Instances are safe for use by multiple threads.
+ *
+ * @since 1.28
+ */
+public final class SignatureIndex extends AbstractMap<String, Clazz> {
+    private static final byte[] MAGIC = {'A', 'S', 'I', 'X'};
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = MAGIC.length + 2 + 2 + 4 + 4;
+
+    private final ByteBuffer buffer;
+
+    private final int classCount;
+
+    private final int directoryStart;
+
+    private final AtomicReferenceArray<String> strings;
+
+    private final ConcurrentMap<String, Clazz> decoded = new ConcurrentHashMap<>();
+
+    private final StringPool stringPool = new StringPool();
+
+    private SignatureIndex(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE) {
+            throw new IOException("Not a signature index");
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.get(i) != MAGIC[i]) {
+                throw new IOException("Not a signature index");
+            }
+        }
+        int version = buffer.getShort(MAGIC.length) & 0xffff;
+        if (version != VERSION) {
+            throw new IOException("Unsupported signature index version: " + version);
+        }
+        int poolSize = buffer.getInt(MAGIC.length + 4);
+        this.classCount = buffer.getInt(MAGIC.length + 8);
+        if (poolSize < 0 || classCount < 0 || buffer.capacity() < HEADER_SIZE + 4L * poolSize + 8L * classCount) {
+            throw new IOException("Corrupt signature index");
+        }
+        this.directoryStart = HEADER_SIZE + 4 * poolSize;
+        this.strings = new AtomicReferenceArray<>(poolSize);
+    }
+
+    /**
+     * Memory maps an index file written by {@link #write(InputStream, File)}.
+     */
+    public static SignatureIndex open(File indexFile) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(indexFile, "r");
+                FileChannel channel = file.getChannel()) {
+            // the mapping stays valid after the channel has been closed
+            return new SignatureIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Returns the index of a signature file, creating the index file in the given directory if it does not exist
+     * yet. The name of the index file is derived from the {@link CacheFiles.Key key} of the signature file and the
+     * version of the index format, so a changed signature file or a new format gets a new index. An index file which
+     * cannot be opened is written again.
+     *
+     * @param signatureFile  the signature file, in any of the supported formats.
+     * @param indexDirectory the directory to keep index files in.
+     */
+    public static SignatureIndex forSignature(File signatureFile, File indexDirectory) throws IOException {
+        File indexFile =
+                new File(indexDirectory, CacheFiles.Key.of(signatureFile).toFileName(".v" + VERSION + ".idx"));
+        if (indexFile.isFile()) {
+            try {
+                return open(indexFile);
+            } catch (IOException e) {
+                // cut short or written by another version; write it again
+            }
+        }
+        CacheFiles.write(indexFile, out -> {
+            try (InputStream in = new FileInputStream(signatureFile)) {
+                write(in, out, indexDirectory);
+            }
+        });
+        return open(indexFile);
+    }
+
+    /**
+     * Writes the index file of the given signature data, replacing the file as {@link CacheFiles#write} does.
+     *
+     * @param signature the signature data, in any of the supported formats.
+     * @param indexFile the index file to write.
+     */
+    public static void write(InputStream signature, File indexFile) throws IOException {
+        File directory = indexFile.getAbsoluteFile().getParentFile();
+        CacheFiles.write(indexFile, out -> write(signature, out, directory));
+    }
+
+    /**
+     * Writes the index, keeping the records in a temporary file in the given directory until every class has been read,
+     * so that only the pool of distinct strings is held in memory. Of a class defined more than once only the record
+     * of the last definition is copied to the index.
+     */
+    private static void write(InputStream signature, OutputStream os, File temporaryDirectory) throws IOException {
+        File recordsFile = File.createTempFile("animal-sniffer", ".records", temporaryDirectory);
+        try {
+            writeIndex(signature, os, recordsFile);
+        } finally {
+            Files.deleteIfExists(recordsFile.toPath());
+        }
+    }
+
+    private static void writeIndex(InputStream signature, OutputStream os, File recordsFile) throws IOException {
+        SignatureRecordEncoder encoder = new SignatureRecordEncoder();
+        // name index, offset in the records file, length of the record and offset in the index of each class
+        Map<String, int[]> directory = new HashMap<>();
+        try (SignatureReader reader = SignatureReader.open(signature);
+                DataOutputStream records =
+                        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(recordsFile)))) {
+            Clazz c;
+            while ((c = reader.read()) != null) {
+                int start = records.size();
+                int name = encoder.index(c.getName());
+                encoder.encode(c, records);
+                // like SignatureChecker.loadClasses, the last definition of a class wins
+                directory.put(c.getName(), new int[] {name, start, records.size() - start, 0});
+            }
+        }
+        List<String> names = new ArrayList<>(directory.keySet());
+        names.sort(null);
+
+        // the records left are copied in the order they were written, so the file is read once from start to end
+        List<int[]> live = new ArrayList<>(directory.values());
+        live.sort((a, b) -> Integer.compare(a[1], b[1]));
+        int copiedLength = 0;
+        for (int[] entry : live) {
+            entry[3] = copiedLength;
+            copiedLength += entry[2];
+        }
+
+        List<String> pool = encoder.getPool();
+        List<byte[]> encodedPool = new ArrayList<>(pool.size());
+        int poolLength = 0;
+        for (String s : pool) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            encodedPool.add(bytes);
+            poolLength += 4 + bytes.length;
+        }
+        int poolStart = HEADER_SIZE + 4 * pool.size() + 8 * names.size();
+        int recordsStart = poolStart + poolLength;
+
+        DataOutputStream out = new DataOutputStream(os);
+        out.write(MAGIC);
+        out.writeShort(VERSION);
+        out.writeShort(0); // flags
+        out.writeInt(pool.size());
+        out.writeInt(names.size());
+        int offset = poolStart;
+        for (byte[] bytes : encodedPool) {
+            out.writeInt(offset);
+            offset += 4 + bytes.length;
+        }
+        for (String name : names) {
+            int[] entry = directory.get(name);
+            out.writeInt(entry[0]);
+            out.writeInt(recordsStart + entry[3]);
+        }
+        for (byte[] bytes : encodedPool) {
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+        try (InputStream records = new BufferedInputStream(new FileInputStream(recordsFile))) {
+            byte[] buffer = new byte[8192];
+            long position = 0;
+            for (int[] entry : live) {
+                position += skipFully(records, entry[1] - position);
+                for (int remaining = entry[2]; remaining > 0; ) {
+                    int n = records.read(buffer, 0, Math.min(buffer.length, remaining));
+                    if (n < 0) {
+                        throw new EOFException("Records file cut short");
+                    }
+                    out.write(buffer, 0, n);
+                    remaining -= n;
+                    position += n;
+                }
+            }
+        }
+        out.flush();
+    }
+
+    private static long skipFully(InputStream in, long count) throws IOException {
+        for (long remaining = count; remaining > 0; ) {
+            long n = in.skip(remaining);
+            if (n <= 0) {
+                throw new EOFException("Records file cut short");
+            }
+            remaining -= n;
+        }
+        return count;
+    }
+
+    @Override
+    public Clazz get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        Clazz clazz = decoded.get(key);
+        if (clazz != null) {
+            return clazz;
+        }
+        int i = find((String) key);
+        return i < 0 ? null : decode(i);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String && (decoded.containsKey(key) || find((String) key) >= 0);
+    }
+
+    @Override
+    public int size() {
+        return classCount;
+    }
+
+    @Override
+    public Set<Entry<String, Clazz>> entrySet() {
+        return new AbstractSet<Entry<String, Clazz>>() {
+            @Override
+            public Iterator<Entry<String, Clazz>> iterator() {
+                return new Iterator<Entry<String, Clazz>>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < classCount;
+                    }
+
+                    @Override
+                    public Entry<String, Clazz> next() {
+                        if (next >= classCount) {
+                            throw new NoSuchElementException();
+                        }
+                        Clazz clazz = decode(next++);
+                        return new SimpleImmutableEntry<>(clazz.getName(), clazz);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return classCount;
+            }
+        };
+    }
+
+    /**
+     * Binary searches the directory for the given class name.
+     *
+     * @return the position in the directory or a negative value if the class is not in the index.
+     */
+    private int find(String name) {
+        int low = 0;
+        int high = classCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = string(buffer.getInt(directoryStart + 8 * mid)).compareTo(name);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private Clazz decode(int position) {
+        String name = string(buffer.getInt(directoryStart + 8 * position));
+        Clazz clazz = decoded.get(name);
+        if (clazz != null) {
+            return clazz;
+        }
+        ByteBuffer record = buffer.duplicate();
+        record.position(buffer.getInt(directoryStart + 8 * position + 4));
+        try {
+            clazz = CompactSignatureReader.decode(record, this::string, stringPool);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Clazz existing = decoded.putIfAbsent(name, clazz);
+        return existing != null ? existing : clazz;
+    }
+
+    private String string(int index) {
+        String s = strings.get(index);
+        if (s == null) {
+            int offset = buffer.getInt(HEADER_SIZE + 4 * index);
+            byte[] bytes = new byte[buffer.getInt(offset)];
+            ByteBuffer data = buffer.duplicate();
+            data.position(offset + 4);
+            data.get(bytes);
+            s = stringPool.intern(new String(bytes, StandardCharsets.UTF_8));
+            strings.lazySet(index, s);
+        }
+        return s;
+    }
+}
@@ -25,61 +25,210 @@ package org.codehaus.mojo.animal_sniffer;
  *
  */
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.OutputStream;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.codehaus.mojo.animal_sniffer.logging.Logger;
+import org.codehaus.mojo.animal_sniffer.logging.PrintWriterLogger;
 
 /**
  * Merges signature files.
+ * <p>
+ * The inputs are read in a single pass, one class at a time, and must be sorted by class name, as the signatures
+ * written by {@link SignatureBuilder} and by this class since 1.28 are. Signatures written by earlier versions are
+ * not sorted and have to be built again. Classes of the same name are merged like {@link Clazz#Clazz(Clazz, Clazz)}
+ * does, later inputs into earlier ones, so only the current class of each input is kept in memory.
  *
  * @author Stephen Connolly
  */
 public class SignatureMerger {
-    private final Map<String, Clazz> classes = new HashMap<>();
+    /**
+     * The default number of classes of the merged signature kept in memory while writing it, see
+     * {@link #SignatureMerger(InputStream[], OutputStream, int, int, File, Logger)}.
+     *
+     * @since 1.28
+     */
+    public static final int DEFAULT_MAXIMUM_CLASSES_IN_MEMORY = 1000;
 
     private final Logger logger;
 
     public static void main(String[] args) throws Exception {
-        // TODO add command arg parsing
-        //        new SignatureMerger( new FileInputStream( "signature" ), ignoredPackages,
-        //                             new PrintWriterLogger( System.out ) ).process( new File( "target/classes" ) );
+        int formatVersion = SignatureWriter.LEGACY_FORMAT;
+        int maximumClassesInMemory = DEFAULT_MAXIMUM_CLASSES_IN_MEMORY;
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-f")) {
+                formatVersion = parseOption(args, ++i);
+                continue;
+            }
+            if (args[i].equals("-m")) {
+                maximumClassesInMemory = parseOption(args, ++i);
+                continue;
+            }
+            files.add(args[i]);
+        }
+        if (files.size() < 2
+                || (formatVersion != SignatureWriter.LEGACY_FORMAT
+                        && formatVersion != SignatureWriter.COMPACT_FORMAT)) {
+            usage();
+        }
+
+        InputStream[] in = new InputStream[files.size() - 1];
+        try {
+            for (int i = 0; i < in.length; i++) {
+                in[i] = new FileInputStream(files.get(i + 1));
+            }
+            new SignatureMerger(
+                    in,
+                    new FileOutputStream(files.get(0)),
+                    formatVersion,
+                    maximumClassesInMemory,
+                    null,
+                    new PrintWriterLogger(System.out));
+        } finally {
+            for (InputStream i : in) {
+                if (i != null) {
+                    i.close();
+                }
+            }
+        }
+    }
+
+    private static int parseOption(String[] args, int i) {
+        if (i < args.length) {
+            try {
+                int value = Integer.parseInt(args[i]);
+                if (value >= 0) {
+                    return value;
+                }
+            } catch (NumberFormatException e) {
+                // not a number
+            }
+        }
+        usage();
+        return 0;
+    }
+
+    private static void usage() {
+        System.err.println("Usage: java -cp animal-sniffer.jar " + SignatureMerger.class.getName()
+                + " [-f N] [-m N] OUTPUT INPUT...");
+        System.err.println(
+                "  -f N : write the merged signature in format version N, 1 (legacy, the default) or 2" + " (compact)");
+        System.err.println("  -m N : keep about N classes of the merged signature in memory, 0 for all (default "
+                + DEFAULT_MAXIMUM_CLASSES_IN_MEMORY + ")");
+        System.err.println("The inputs must be sorted by class name, as signatures built by animal-sniffer 1.28 or"
+                + " later are.");
+        System.exit(-1);
     }
 
     public SignatureMerger(InputStream[] in, OutputStream out, Logger logger) throws IOException {
+        this(in, out, SignatureWriter.LEGACY_FORMAT, logger);
+    }
+
+    /**
+     * Merges the given signatures, keeping about {@link #DEFAULT_MAXIMUM_CLASSES_IN_MEMORY} classes of the merged
+     * signature in memory.
+     *
+     * @see #SignatureMerger(InputStream[], OutputStream, int, int, File, Logger)
+     * @since 1.28
+     */
+    public SignatureMerger(InputStream[] in, OutputStream out, int formatVersion, Logger logger) throws IOException {
+        this(in, out, formatVersion, DEFAULT_MAXIMUM_CLASSES_IN_MEMORY, null, logger);
+    }
+
+    /**
+     * Merges the given signatures.
+     *
+     * @param in                     the signatures to merge, each sorted by class name; they are closed once merged.
+     * @param out                    where to write the merged signature to; it is closed once written.
+     * @param formatVersion          the format of the merged signature, see
+     *                               {@link SignatureWriter#create(OutputStream, int)}.
+     * @param maximumClassesInMemory about how many classes of the merged signature to keep in memory while writing
+     *                               it, or <code>0</code> to keep all.
+     * @param temporaryDirectory     the directory to keep the rest in, or <code>null</code> for the default
+     *                               temporary directory.
+     * @param logger                 the logger.
+     * @throws IOException if an input cannot be read, or is not sorted by class name.
+     * @since 1.28
+     */
+    public SignatureMerger(
+            InputStream[] in,
+            OutputStream out,
+            int formatVersion,
+            int maximumClassesInMemory,
+            File temporaryDirectory,
+            Logger logger)
+            throws IOException {
+        if (maximumClassesInMemory < 0) {
+            throw new IllegalArgumentException("maximumClassesInMemory must not be negative");
+        }
         this.logger = logger;
-        for (InputStream i : in) {
-            try {
-                ObjectInputStream ois = new SignatureObjectInputStream(new GZIPInputStream(i));
-                while (true) {
-                    Clazz c = (Clazz) ois.readObject();
-                    if (c == null) {
-                        return; // finished
-                    }
-                    Clazz cur = classes.get(c.getName());
-                    if (cur == null) {
-                        classes.put(c.getName(), c);
-                    } else {
-                        classes.put(c.getName(), new Clazz(c, cur));
-                    }
+        SignatureReader[] readers = new SignatureReader[in.length];
+        Clazz[] heads = new Clazz[in.length];
+        try {
+            for (int i = 0; i < in.length; i++) {
+                readers[i] = SignatureReader.open(in[i]);
+                heads[i] = readers[i].read();
+            }
+            int count = 0;
+            try (SignatureWriter writer = SignatureWriter.create(out, formatVersion)) {
+                if (maximumClassesInMemory > 0) {
+                    writer.setMaximumClassesInMemory(maximumClassesInMemory, temporaryDirectory);
+                }
+                Clazz merged;
+                while ((merged = merge(readers, heads)) != null) {
+                    logger.debug(merged.getName());
+                    writer.write(merged);
+                    count++;
                 }
-            } catch (ClassNotFoundException e) {
-                throw new NoClassDefFoundError(e.getMessage());
             }
+            logger.info("Merged " + count + " classes from " + in.length + " signatures");
+        } finally {
+            for (int i = 0; i < in.length; i++) {
+                if (readers[i] != null) {
+                    readers[i].close();
+                } else {
+                    in[i].close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Merges the classes with the lowest name among the current classes of the inputs, earlier inputs first, and
+     * advances those inputs.
+     *
+     * @param readers the inputs.
+     * @param heads   the current class of each input, <code>null</code> once an input is exhausted.
+     * @return the merged class, or <code>null</code> if all inputs are exhausted.
+     */
+    private static Clazz merge(SignatureReader[] readers, Clazz[] heads) throws IOException {
+        String name = null;
+        for (Clazz head : heads) {
+            if (head != null && (name == null || head.getName().compareTo(name) < 0)) {
+                name = head.getName();
+            }
+        }
+        if (name == null) {
+            return null;
         }
-        ObjectOutputStream oos = new ObjectOutputStream(new GZIPOutputStream(out));
-        for (Map.Entry<String, Clazz> entry : classes.entrySet()) {
-            logger.info(entry.getKey());
-            oos.writeObject(entry.getValue());
+        Clazz.Builder merged = null;
+        for (int i = 0; i < heads.length; i++) {
+            while (heads[i] != null && heads[i].getName().equals(name)) {
+                merged = merged == null ? new Clazz.Builder(heads[i]) : merged.merge(heads[i]);
+                heads[i] = readers[i].read();
+                if (heads[i] != null && heads[i].getName().compareTo(name) < 0) {
+                    throw new IOException("Signature " + (i + 1) + " is not sorted by class name: " + heads[i].getName()
+                            + " follows " + name + "; build it again with animal-sniffer 1.28 or later");
+                }
+            }
         }
-        oos.writeObject(null); // EOF marker
-        oos.close();
+        return merged.build();
     }
 }
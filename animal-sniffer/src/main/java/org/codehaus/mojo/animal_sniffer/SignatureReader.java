@@ -0,0 +1,96 @@
+package org.codehaus.mojo.animal_sniffer;
+
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2008 Kohsuke Kawaguchi and codehaus.org.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the {@link Clazz} records of a signature file, one at a time.
+ * <p>
+ * Use {@link #open(InputStream)} to obtain a reader; the format of the signature data is detected from its magic
+ * bytes, so both the legacy Java Serialization based format and the compact format written by
+ * {@link CompactSignatureWriter} can be read.
+ *
+ * @since 1.28
+ */
+public abstract class SignatureReader implements Closeable {
+    /**
+     * The pool to canonicalize the strings of the read class signatures with, or <code>null</code>.
+     */
+    protected StringPool stringPool;
+
+    /**
+     * Sets the pool to canonicalize the strings of the read class signatures with, so that equal strings of different
+     * classes share the same instance.
+     *
+     * @param stringPool the pool or <code>null</code> to not canonicalize strings.
+     */
+    public void setStringPool(StringPool stringPool) {
+        this.stringPool = stringPool;
+    }
+
+    /**
+     * Reads the next class signature.
+     *
+     * @return the next class signature or <code>null</code> if the end of the signature data has been reached.
+     */
+    public abstract Clazz read() throws IOException;
+
+    /**
+     * Opens a reader for the given signature data, detecting the format of the data.
+     *
+     * @param in the signature data; it is closed when the returned reader is closed.
+     * @return the reader.
+     * @throws IOException if the data is not in a known signature format.
+     */
+    public static SignatureReader open(InputStream in) throws IOException {
+        InputStream buffered = in.markSupported() ? in : new BufferedInputStream(in);
+        byte[] magic = new byte[CompactSignatureWriter.MAGIC.length];
+        buffered.mark(magic.length);
+        int read = 0;
+        while (read < magic.length) {
+            int n = buffered.read(magic, read, magic.length - read);
+            if (n == -1) {
+                break;
+            }
+            read += n;
+        }
+        buffered.reset();
+
+        if (read >= 2 && (magic[0] & 0xff) == 0x1f && (magic[1] & 0xff) == 0x8b) {
+            // GZIP magic, i.e. the legacy format
+            return new LegacySignatureReader(buffered);
+        }
+        if (read == magic.length && CompactSignatureWriter.isMagic(magic)) {
+            return new CompactSignatureReader(buffered);
+        }
+        buffered.close();
+        throw new IOException("Unknown signature format");
+    }
+}
@@ -0,0 +1,110 @@
+package org.codehaus.mojo.animal_sniffer;
+
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2008 Kohsuke Kawaguchi and codehaus.org.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes class signatures into records whose strings are indices into a shared constant pool, as used by the
+ * compact signature format and the signature index.
+ *
+ * @see CompactSignatureWriter
+ * @see SignatureIndex
+ */
+final class SignatureRecordEncoder {
+    private final Map<String, Integer> poolIndex = new HashMap<>();
+
+    private final List<String> pool = new ArrayList<>();
+
+    /**
+     * Writes the record of a class signature.
+     */
+    void encode(Clazz clazz, OutputStream record) throws IOException {
+        writeVarInt(record, index(clazz.getName()));
+        writeVarInt(record, clazz.getSuperClass() == null ? 0 : index(clazz.getSuperClass()) + 1);
+        String[] superInterfaces = clazz.getSuperInterfaces();
+        if (superInterfaces == null) {
+            writeVarInt(record, 0);
+        } else {
+            writeVarInt(record, superInterfaces.length);
+            for (String superInterface : superInterfaces) {
+                writeVarInt(record, index(superInterface));
+            }
+        }
+        writeVarInt(record, clazz.getSignatures().size());
+        for (String signature : clazz.getSignatures()) {
+            int split = memberNameLength(signature);
+            writeVarInt(record, index(signature.substring(0, split)));
+            writeVarInt(record, index(signature.substring(split)));
+        }
+    }
+
+    /**
+     * Returns the index of the given string in the constant pool, adding it if needed.
+     */
+    int index(String s) {
+        Integer index = poolIndex.get(s);
+        if (index == null) {
+            index = pool.size();
+            pool.add(s);
+            poolIndex.put(s, index);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the constant pool, in index order.
+     */
+    List<String> getPool() {
+        return pool;
+    }
+
+    /**
+     * Returns the length of the name part of a member signature, i.e. the position of the <code>(</code> of a method
+     * descriptor or the <code>#</code> separating a field name from its type.
+     */
+    static int memberNameLength(String signature) {
+        int paren = signature.indexOf('(');
+        if (paren != -1) {
+            return paren;
+        }
+        int hash = signature.indexOf('#');
+        return hash != -1 ? hash : signature.length();
+    }
+
+    static void writeVarInt(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+}
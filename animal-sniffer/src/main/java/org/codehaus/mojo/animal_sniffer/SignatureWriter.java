@@ -0,0 +1,86 @@
+package org.codehaus.mojo.animal_sniffer;
+
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2008 Kohsuke Kawaguchi and codehaus.org.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes {@link Clazz} records to a signature file.
+ *
+ * @since 1.28
+ */
+public abstract class SignatureWriter implements Closeable {
+    /**
+     * The legacy signature format: a GZIP compressed Java Serialization stream of {@link Clazz} instances.
+     */
+    public static final int LEGACY_FORMAT = 1;
+
+    /**
+     * The compact binary signature format, see {@link CompactSignatureWriter}.
+     */
+    public static final int COMPACT_FORMAT = 2;
+
+    /**
+     * Writes a class signature.
+     */
+    public abstract void write(Clazz clazz) throws IOException;
+
+    /**
+     * Finishes the signature data and closes the underlying stream.
+     */
+    @Override
+    public abstract void close() throws IOException;
+
+    /**
+     * Bounds the memory used while writing to about what the given number of classes need, keeping what has to be
+     * written after them in temporary files in the given directory. Must be called before the first class is written.
+     * Does nothing by default.
+     *
+     * @param temporaryDirectory the directory, or <code>null</code> for the default temporary directory.
+     */
+    void setMaximumClassesInMemory(int maximumClassesInMemory, File temporaryDirectory) throws IOException {}
+
+    /**
+     * Creates a writer for the given signature format.
+     *
+     * @param out           where to write the signature data to.
+     * @param formatVersion either {@link #LEGACY_FORMAT} or {@link #COMPACT_FORMAT}.
+     * @return the writer.
+     */
+    public static SignatureWriter create(OutputStream out, int formatVersion) throws IOException {
+        switch (formatVersion) {
+            case LEGACY_FORMAT:
+                return new LegacySignatureWriter(out);
+            case COMPACT_FORMAT:
+                return new CompactSignatureWriter(out);
+            default:
+                throw new IllegalArgumentException("Unsupported signature format version: " + formatVersion);
+        }
+    }
+}
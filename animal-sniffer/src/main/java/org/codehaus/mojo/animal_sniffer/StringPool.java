@@ -0,0 +1,84 @@
+package org.codehaus.mojo.animal_sniffer;
+
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2008 Kohsuke Kawaguchi and codehaus.org.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A pool of canonical {@link String} instances, used while loading signatures so that class names and member
+ * signatures which occur in many classes (for example <code>toString()Ljava/lang/String;</code> or
+ * <code>java/lang/Object</code>) are only held once in memory.
+ * <p>
+ * Unlike {@link String#intern()} the pool can be garbage collected together with the signatures which use it.
+ *
+ * @since 1.28
+ */
+public final class StringPool {
+    private final ConcurrentMap<String, String> strings = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the canonical instance of the given string.
+     *
+     * @param s the string, may be <code>null</code>.
+     * @return the instance of the pool which is equal to <code>s</code>.
+     */
+    public String intern(String s) {
+        if (s == null) {
+            return null;
+        }
+        String canonical = strings.putIfAbsent(s, s);
+        return canonical == null ? s : canonical;
+    }
+
+    /**
+     * Returns a copy of the given class signature whose strings are the canonical instances of this pool.
+     */
+    public Clazz intern(Clazz clazz) {
+        String[] superInterfaces = clazz.getSuperInterfaces();
+        if (superInterfaces != null) {
+            superInterfaces = superInterfaces.clone();
+            for (int i = 0; i < superInterfaces.length; i++) {
+                superInterfaces[i] = intern(superInterfaces[i]);
+            }
+        }
+        Clazz interned = new Clazz(
+                intern(clazz.getName()),
+                intern(clazz.getSuperClass()),
+                superInterfaces == null ? new String[0] : superInterfaces);
+        for (String signature : clazz.getSignatures()) {
+            interned.getSignatures().add(intern(signature));
+        }
+        return interned;
+    }
+
+    /**
+     * Returns the number of distinct strings in the pool.
+     */
+    public int size() {
+        return strings.size();
+    }
+}
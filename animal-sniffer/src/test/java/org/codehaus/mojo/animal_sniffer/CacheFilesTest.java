@@ -0,0 +1,92 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2012 Codehaus.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.codehaus.mojo.animal_sniffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class CacheFilesTest extends TestCase {
+
+    public void testWrite() throws IOException {
+        Path dir = Files.createTempDirectory("animal-sniffer");
+        File file = dir.resolve("cache/a.txt").toFile();
+        try {
+            CacheFiles.write(file, out -> out.write(new byte[] {1, 2, 3}));
+            assertArrayEquals(new byte[] {1, 2, 3}, Files.readAllBytes(file.toPath()));
+            CacheFiles.write(file, out -> out.write(4));
+            assertArrayEquals(new byte[] {4}, Files.readAllBytes(file.toPath()));
+
+            try {
+                CacheFiles.write(file, out -> {
+                    out.write(5);
+                    throw new IOException("failed");
+                });
+                fail();
+            } catch (IOException e) {
+                assertEquals("failed", e.getMessage());
+            }
+            // the file is kept and no temporary file is left behind
+            assertArrayEquals(new byte[] {4}, Files.readAllBytes(file.toPath()));
+            assertEquals(
+                    Collections.singletonList("a.txt"),
+                    Arrays.asList(file.getParentFile().list()));
+        } finally {
+            Files.deleteIfExists(file.toPath());
+            Files.delete(file.getParentFile().toPath());
+            Files.delete(dir);
+        }
+    }
+
+    public void testKey() throws IOException {
+        Path dir = Files.createTempDirectory("animal-sniffer");
+        Path file = dir.resolve("a.jar");
+        try {
+            Files.write(file, new byte[] {1, 2, 3});
+            Files.setLastModifiedTime(file, FileTime.fromMillis(1000));
+            CacheFiles.Key key = CacheFiles.Key.of(file.toFile());
+            assertEquals(key, CacheFiles.Key.of(new File(dir.toFile(), "./a.jar")));
+            assertEquals(key.hashCode(), CacheFiles.Key.of(file.toFile()).hashCode());
+            assertEquals(file.toFile().getCanonicalFile(), key.getFile());
+            String path = file.toFile().getCanonicalPath();
+            assertEquals("a.jar-" + Integer.toHexString(path.hashCode()) + "-3-3e8.idx", key.toFileName(".idx"));
+
+            Files.write(file, new byte[] {1, 2, 4});
+            Files.setLastModifiedTime(file, FileTime.fromMillis(2000));
+            assertFalse(key.equals(CacheFiles.Key.of(file.toFile())));
+        } finally {
+            Files.deleteIfExists(file);
+            Files.delete(dir);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2012 Codehaus.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.codehaus.mojo.animal_sniffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class CheckStampTest extends TestCase {
+
+    public void testIsUpToDate() throws IOException {
+        Path dir = Files.createTempDirectory("animal-sniffer");
+        Path classes = Files.createDirectories(dir.resolve("classes/a"));
+        File file = dir.resolve("check.stamp").toFile();
+        try {
+            Files.write(classes.resolve("A.class"), new byte[] {1, 2, 3});
+
+            CheckStamp stamp = stamp(file, dir, "x");
+            assertFalse(stamp.isUpToDate());
+            stamp.save();
+            assertTrue(stamp(file, dir, "x").isUpToDate());
+            assertFalse(stamp(file, dir, "y").isUpToDate());
+
+            Files.write(classes.resolve("B.class"), new byte[] {1});
+            assertFalse(stamp(file, dir, "x").isUpToDate());
+            stamp(file, dir, "x").save();
+            assertTrue(stamp(file, dir, "x").isUpToDate());
+
+            Files.write(classes.resolve("B.class"), new byte[] {1, 2});
+            assertFalse(stamp(file, dir, "x").isUpToDate());
+            stamp(file, dir, "x").save();
+
+            // rewritten with the same size and modification time
+            long lastModified = classes.resolve("B.class").toFile().lastModified();
+            Files.write(classes.resolve("B.class"), new byte[] {2, 1});
+            assertTrue(classes.resolve("B.class").toFile().setLastModified(lastModified));
+            assertFalse(stamp(file, dir, "x").isUpToDate());
+
+            try {
+                stamp.add("z");
+                fail();
+            } catch (IllegalStateException e) {
+                // expected
+            }
+        } finally {
+            Files.deleteIfExists(file.toPath());
+            Files.deleteIfExists(classes.resolve("A.class"));
+            Files.deleteIfExists(classes.resolve("B.class"));
+            Files.delete(classes);
+            Files.delete(classes.getParent());
+            Files.delete(dir);
+        }
+    }
+
+    public void testForModule() throws IOException {
+        Path dir = Files.createTempDirectory("animal-sniffer");
+        Path classes = Files.createDirectories(dir.resolve("classes"));
+        File signature = dir.resolve("java.signature").toFile();
+        File dependency = dir.resolve("dependency.jar").toFile();
+        File file = dir.resolve("check.stamp").toFile();
+        try {
+            Files.write(classes.resolve("A.class"), new byte[] {1});
+            Files.write(signature.toPath(), new byte[] {2});
+            Files.write(dependency.toPath(), new byte[] {3});
+            Map<String, File> dependencies = Collections.singletonMap("g:a:jar:1:compile", dependency);
+
+            CheckStamp.forModule(
+                            file,
+                            signature,
+                            classes.toFile(),
+                            null,
+                            new String[] {"a.*"},
+                            null,
+                            true,
+                            null,
+                            null,
+                            dependencies)
+                    .save();
+            assertTrue(CheckStamp.forModule(
+                            file,
+                            signature,
+                            classes.toFile(),
+                            null,
+                            new String[] {"a.*"},
+                            null,
+                            true,
+                            null,
+                            null,
+                            dependencies)
+                    .isUpToDate());
+            assertFalse(CheckStamp.forModule(
+                            file,
+                            signature,
+                            classes.toFile(),
+                            null,
+                            new String[] {"a.*"},
+                            null,
+                            false,
+                            null,
+                            null,
+                            dependencies)
+                    .isUpToDate());
+
+            Files.write(dependency.toPath(), new byte[] {4});
+            assertFalse(CheckStamp.forModule(
+                            file,
+                            signature,
+                            classes.toFile(),
+                            null,
+                            new String[] {"a.*"},
+                            null,
+                            true,
+                            null,
+                            null,
+                            dependencies)
+                    .isUpToDate());
+        } finally {
+            Files.deleteIfExists(file.toPath());
+            Files.deleteIfExists(dependency.toPath());
+            Files.deleteIfExists(signature.toPath());
+            Files.deleteIfExists(classes.resolve("A.class"));
+            Files.delete(classes);
+            Files.delete(dir);
+        }
+    }
+
+    private static CheckStamp stamp(File file, Path dir, String configuration) throws IOException {
+        CheckStamp stamp = new CheckStamp(file);
+        stamp.addDirectory(dir.resolve("classes").toFile());
+        stamp.add(configuration);
+        stamp.add(new String[] {"a", null});
+        return stamp;
+    }
+}
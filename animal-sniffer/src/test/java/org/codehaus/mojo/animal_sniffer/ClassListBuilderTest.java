@@ -0,0 +1,77 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2012 Codehaus.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.codehaus.mojo.animal_sniffer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import junit.framework.TestCase;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+public class ClassListBuilderTest extends TestCase {
+    public void testToClassName() {
+        assertEquals("my.pkg.Name", ClassListBuilder.toClassName("my/pkg/Name.class"));
+        assertEquals("Name$1", ClassListBuilder.toClassName("Name$1.class"));
+        assertNull(ClassListBuilder.toClassName("my/pkg/package-info.class"));
+        assertNull(ClassListBuilder.toClassName("BOOT-INF/classes/my/Name.class"));
+        assertNull(ClassListBuilder.toClassName("my//Name.class"));
+        assertNull(ClassListBuilder.toClassName("/Name.class"));
+        assertNull(ClassListBuilder.toClassName("my/1Name.class"));
+    }
+
+    public void testProcessJarFile() throws Exception {
+        File jar = Files.createTempFile("animal-sniffer", ".jar").toFile();
+        try {
+            try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+                write(out, "my/A.class", "my/A");
+                write(out, "META-INF/versions/11/my/B.class", "my/B");
+                write(out, "META-INF/versions/11/module-info.class", "module-info");
+                write(out, "META-INF/my/Ignored.class", "my/Ignored");
+                write(out, "BOOT-INF/classes/my/C.class", "my/C");
+            }
+
+            ClassListBuilder builder = new ClassListBuilder(new SignatureCheckerTest.TestLogger());
+            builder.process(jar);
+            assertEquals(new HashSet<>(Arrays.asList("my.A", "my.B", "my.C")), builder.getPackages());
+        } finally {
+            Files.delete(jar.toPath());
+        }
+    }
+
+    private static void write(JarOutputStream out, String entry, String className) throws Exception {
+        ClassWriter cw = new ClassWriter(0);
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, className, null, "java/lang/Object", null);
+        cw.visitEnd();
+        out.putNextEntry(new JarEntry(entry));
+        out.write(cw.toByteArray());
+        out.closeEntry();
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2012 Codehaus.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.codehaus.mojo.animal_sniffer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import junit.framework.TestCase;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+public class ClassListCacheTest extends TestCase {
+    private File directory;
+
+    @Override
+    protected void setUp() throws Exception {
+        directory = Files.createTempDirectory("animal-sniffer-classes").toFile();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        delete(directory);
+    }
+
+    private static void delete(File file) throws Exception {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                delete(f);
+            }
+        }
+        Files.delete(file.toPath());
+    }
+
+    private File jar(String name, String... classNames) throws Exception {
+        File jar = new File(directory, name);
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            for (String className : classNames) {
+                ClassWriter cw = new ClassWriter(0);
+                cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, className, null, "java/lang/Object", null);
+                cw.visitEnd();
+                out.putNextEntry(new JarEntry(className + ".class"));
+                out.write(cw.toByteArray());
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    public void testClassNames() throws Exception {
+        File jar = jar("lib.jar", "my/A", "my/B$Inner");
+        File cacheDirectory = new File(directory, "cache");
+        Set<String> expected = new HashSet<>(Arrays.asList("my.A", "my.B$Inner"));
+
+        assertEquals(
+                expected, new ClassListCache(cacheDirectory).getClassNames(jar, new SignatureCheckerTest.TestLogger()));
+        File[] stored = cacheDirectory.listFiles();
+        assertNotNull(stored);
+        assertEquals(1, stored.length);
+        assertEquals(
+                Arrays.asList("#animal-sniffer-classes 1", "my.A", "my.B$Inner"),
+                Files.readAllLines(stored[0].toPath()));
+
+        ClassListBuilder builder = new ClassListBuilder(new SignatureCheckerTest.TestLogger());
+        builder.setCache(ClassListCache.getInstance());
+        builder.process(jar);
+        assertEquals(expected, builder.getPackages());
+
+        // a changed jar is read again
+        jar("lib.jar", "my/C");
+        assertTrue(jar.setLastModified(jar.lastModified() + 10000));
+        builder = new ClassListBuilder(new SignatureCheckerTest.TestLogger());
+        builder.setCache(new ClassListCache(cacheDirectory));
+        builder.process(jar);
+        assertEquals(new HashSet<>(Arrays.asList("my.C")), builder.getPackages());
+        assertEquals(2, cacheDirectory.listFiles().length);
+    }
+
+    public void testOtherVersion() throws Exception {
+        File cacheDirectory = new File(directory, "cache");
+        assertTrue(cacheDirectory.mkdir());
+
+        // lists without the header, or with another one, are read from the jar file again and replaced
+        assertStale(cacheDirectory, jar("unversioned.jar", "my/A"), Arrays.asList("my.Stale"));
+        assertStale(
+                cacheDirectory, jar("versioned.jar", "my/A"), Arrays.asList("#animal-sniffer-classes 0", "my.Stale"));
+    }
+
+    private static void assertStale(File cacheDirectory, File jar, List<String> lines) throws Exception {
+        File stored = new File(cacheDirectory, CacheFiles.Key.of(jar).toFileName(".classes"));
+        Files.write(stored.toPath(), lines);
+        assertEquals(
+                Collections.singleton("my.A"),
+                new ClassListCache(cacheDirectory).getClassNames(jar, new SignatureCheckerTest.TestLogger()));
+        assertEquals(Arrays.asList("#animal-sniffer-classes 1", "my.A"), Files.readAllLines(stored.toPath()));
+    }
+}
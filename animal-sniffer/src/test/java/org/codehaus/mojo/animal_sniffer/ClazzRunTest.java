@@ -0,0 +1,98 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2012 Codehaus.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.codehaus.mojo.animal_sniffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import junit.framework.TestCase;
+
+public class ClazzRunTest extends TestCase {
+
+    /**
+     * Merges more runs than are read at once, so that they are merged in several passes, and expects the same classes
+     * as when merging them in memory, oldest run first.
+     */
+    public void testMerge() throws IOException {
+        File dir = Files.createTempDirectory("animal-sniffer").toFile();
+        try {
+            Map<String, Clazz.Builder> expected = new TreeMap<>();
+            List<List<Clazz>> classes = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                List<Clazz> run = new ArrayList<>();
+                for (int j = i % 3; j < 6; j += 2) {
+                    Clazz c = new Clazz(
+                            "a/C" + j,
+                            new LinkedHashSet<>(Arrays.asList("m" + i + "()V", "m" + j + "()V")),
+                            "java/lang/Object",
+                            new String[] {"java/io/I" + i % 2});
+                    run.add(c);
+                    Clazz.Builder builder = expected.get(c.getName());
+                    if (builder == null) {
+                        expected.put(c.getName(), new Clazz.Builder(c));
+                    } else {
+                        builder.merge(c);
+                    }
+                }
+                classes.add(run);
+            }
+            List<String> merged = new ArrayList<>();
+            for (Clazz.Builder builder : expected.values()) {
+                merged.add(toString(builder.build()));
+            }
+
+            for (int maximumRuns : new int[] {2, 3, 7, ClazzRun.MAXIMUM_RUNS_MERGED}) {
+                List<ClazzRun> runs = new ArrayList<>();
+                for (List<Clazz> run : classes) {
+                    runs.add(ClazzRun.spill(run, dir));
+                }
+                List<String> actual = new ArrayList<>();
+                try (ClazzRun.Merger merger = ClazzRun.merge(runs, maximumRuns, dir)) {
+                    Clazz c;
+                    while ((c = merger.read()) != null) {
+                        actual.add(toString(c));
+                    }
+                }
+                assertEquals(merged, actual);
+                assertEquals(Collections.emptyList(), Arrays.asList(dir.list()));
+            }
+        } finally {
+            Files.delete(dir.toPath());
+        }
+    }
+
+    private static String toString(Clazz c) {
+        return c.getName() + " " + c.getSuperClass() + " " + Arrays.toString(c.getSuperInterfaces()) + " "
+                + c.getSignatures();
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2012 Codehaus.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.codehaus.mojo.animal_sniffer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+
+import junit.framework.TestCase;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class ClazzTest extends TestCase {
+
+    public void testBuilder() {
+        Clazz a = clazz(new String[] {"java/io/Serializable"}, "run()V", "size#I");
+        Clazz b = clazz(new String[] {"java/lang/Runnable", "java/io/Serializable"}, "call()V", "run()V");
+        Clazz c = clazz(new String[] {"java/lang/Cloneable"}, "stop()V", "size#I");
+
+        Clazz expected = new Clazz(c, new Clazz(b, a));
+        Clazz.Builder builder = new Clazz.Builder(a).merge(new Clazz.Builder(b));
+        Clazz merged = builder.merge(c).build();
+        assertEquals("a/A", merged.getName());
+        assertEquals("java/lang/Object", merged.getSuperClass());
+        assertArrayEquals(expected.getSuperInterfaces(), merged.getSuperInterfaces());
+        assertEquals(new ArrayList<>(expected.getSignatures()), new ArrayList<>(merged.getSignatures()));
+        assertSame(merged, builder.build());
+        assertSame(a, new Clazz.Builder(a).build());
+    }
+
+    public void testBuilder_ChangedSuperclass() {
+        Clazz.Builder builder = new Clazz.Builder(clazz(new String[0], "run()V"));
+        try {
+            builder.merge(new Clazz("a/A", "java/lang/Thread", new String[0]));
+            fail();
+        } catch (ClassCastException e) {
+            assertEquals("Cannot merge class a/A as it has changed superclass:", e.getMessage());
+        }
+    }
+
+    private static Clazz clazz(String[] superInterfaces, String... signatures) {
+        return new Clazz("a/A", new LinkedHashSet<>(Arrays.asList(signatures)), "java/lang/Object", superInterfaces);
+    }
+}
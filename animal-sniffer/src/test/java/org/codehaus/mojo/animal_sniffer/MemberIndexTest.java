@@ -0,0 +1,76 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2012 Codehaus.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.codehaus.mojo.animal_sniffer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class MemberIndexTest extends TestCase {
+
+    public void testIndexOf() {
+        MemberIndex index = new MemberIndex(
+                Arrays.asList("<init>()V", "toString()Ljava/lang/String;", "out#Ljava/io/PrintStream;"));
+        assertEquals(0, index.indexOf("<init>", "()V"));
+        assertEquals(1, index.indexOf("toString", "()Ljava/lang/String;"));
+        assertEquals(2, index.indexOf("out", "Ljava/io/PrintStream;"));
+        assertEquals(-1, index.indexOf("out", "Ljava/lang/Object;"));
+        assertEquals(-1, index.indexOf("toString", "()Ljava/lang/Object;"));
+        assertEquals(-1, index.indexOf("toStrin", "g()Ljava/lang/String;"));
+        assertEquals(-1, new MemberIndex(Collections.<String>emptyList()).indexOf("a", "I"));
+    }
+
+    public void testHash() {
+        assertEquals("hashCode()I".hashCode(), MemberIndex.hash("hashCode", "()I"));
+        assertEquals("MAX_VALUE#I".hashCode(), MemberIndex.hash("MAX_VALUE", "I"));
+        assertEquals("hashCode()I", MemberIndex.signature("hashCode", "()I"));
+        assertEquals("MAX_VALUE#I", MemberIndex.signature("MAX_VALUE", "I"));
+    }
+
+    /**
+     * Looks up every member of the bundled signature by its name and descriptor.
+     */
+    public void testHasMember() throws IOException {
+        Map<String, Clazz> classes;
+        try (InputStream in = getClass().getResourceAsStream("/java16-1.1.signature")) {
+            assertNotNull(in);
+            classes = SignatureChecker.loadClasses(in);
+        }
+        for (Clazz c : classes.values()) {
+            for (String signature : c.getSignatures()) {
+                int hash = signature.indexOf('#');
+                int split = hash != -1 ? hash : signature.indexOf('(');
+                String name = signature.substring(0, split);
+                String desc = signature.substring(hash != -1 ? hash + 1 : split);
+                assertTrue(signature, c.hasMember(name, desc));
+                assertFalse(signature, c.hasMember(name + "$", desc));
+            }
+        }
+    }
+}
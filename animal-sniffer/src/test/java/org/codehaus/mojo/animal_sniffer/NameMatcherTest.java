@@ -0,0 +1,194 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2012 Codehaus.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.codehaus.mojo.animal_sniffer;
+
+import java.io.InputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import junit.framework.TestCase;
+
+public class NameMatcherTest extends TestCase {
+
+    public void testMatches() {
+        NameMatcher matcher = NameMatcher.compile(Arrays.asList(
+                "java/lang/String",
+                "java/lang/Str",
+                "org/objectweb/*",
+                "com/*/internal/*",
+                "a?c",
+                "x?z*",
+                "*Test",
+                "one*two*three"));
+
+        assertTrue(matcher.matches("java/lang/String"));
+        assertTrue(matcher.matches("java/lang/Str"));
+        assertFalse(matcher.matches("java/lang/Stri"));
+        assertFalse(matcher.matches("java/lang/Strings"));
+        assertFalse(matcher.matches("java/lang"));
+
+        assertTrue(matcher.matches("org/objectweb/"));
+        assertTrue(matcher.matches("org/objectweb/asm/ClassReader"));
+        assertFalse(matcher.matches("org/objectweb"));
+
+        assertTrue(matcher.matches("com/foo/internal/Bar"));
+        assertTrue(matcher.matches("com/foo/bar/internal/Bar"));
+        assertFalse(matcher.matches("com/foo/Bar"));
+
+        // without a '*', and in prefix patterns, '?' matches literally
+        assertTrue(matcher.matches("a?c"));
+        assertFalse(matcher.matches("abc"));
+        assertTrue(matcher.matches("x?z"));
+        assertTrue(matcher.matches("x?zzy"));
+        assertFalse(matcher.matches("xyz"));
+        assertFalse(matcher.matches("xz"));
+
+        assertTrue(matcher.matches("my/FooTest"));
+        assertTrue(matcher.matches("Test"));
+        assertTrue(matcher.matches("onetwothree"));
+        assertTrue(matcher.matches("one/two/three"));
+        assertFalse(matcher.matches("one/three/two"));
+
+        // with a '*' before the end, '?' matches any single character
+        matcher = NameMatcher.compile(Arrays.asList("a?c*d", "*x?z"));
+        assertTrue(matcher.matches("abcd"));
+        assertTrue(matcher.matches("abc/d"));
+        assertTrue(matcher.matches("wxyz"));
+        assertFalse(matcher.matches("a?c"));
+
+        assertFalse(NameMatcher.compile(Collections.emptyList()).matches("java/lang/String"));
+        assertTrue(NameMatcher.compile(Collections.singletonList("*")).matches(""));
+    }
+
+    /**
+     * Compares the matcher to matching the patterns one by one, as {@link SignatureChecker} used to do.
+     */
+    public void testMatchesLikeRegex() {
+        Random random = new Random(42);
+        String alphabet = "ab/$";
+        for (int round = 0; round < 200; round++) {
+            List<String> patterns = new ArrayList<>();
+            for (int i = random.nextInt(6); i >= 0; i--) {
+                patterns.add(randomString(random, alphabet + "*?", 6));
+            }
+            NameMatcher matcher = NameMatcher.compile(patterns);
+            for (int i = 0; i < 50; i++) {
+                String name = randomString(random, alphabet, 8);
+                boolean expected = false;
+                for (String pattern : patterns) {
+                    int star = pattern.indexOf('*');
+                    if (star == -1) {
+                        expected |= pattern.equals(name);
+                    } else if (star == pattern.length() - 1) {
+                        expected |= name.startsWith(pattern.substring(0, star));
+                    } else {
+                        expected |= Pattern.compile(RegexUtils.convertWildcardsToRegex(pattern, true))
+                                .matcher(name)
+                                .matches();
+                    }
+                }
+                assertEquals(patterns + " " + name, expected, matcher.matches(name));
+            }
+        }
+    }
+
+    /**
+     * Compares the wildcard matcher to matching the patterns one by one, as {@link SignatureBuilder} used to do.
+     */
+    public void testCompileWildcardsLikeRegex() {
+        Random random = new Random(42);
+        String alphabet = "ab.$";
+        for (int round = 0; round < 200; round++) {
+            List<String> patterns = new ArrayList<>();
+            for (int i = random.nextInt(6); i >= 0; i--) {
+                patterns.add(randomString(random, alphabet + "*?", 6));
+            }
+            NameMatcher matcher = NameMatcher.compileWildcards(patterns);
+            for (int i = 0; i < 50; i++) {
+                String name = randomString(random, alphabet, 8);
+                boolean expected = false;
+                for (String pattern : patterns) {
+                    expected |=
+                            RegexUtils.compileWildcard(pattern).matcher(name).matches();
+                }
+                assertEquals(patterns + " " + name, expected, matcher.matches(name));
+            }
+        }
+        assertTrue(
+                NameMatcher.compileWildcards(Collections.singletonList("a?c")).matches("abc"));
+    }
+
+    private static String randomString(Random random, String alphabet, int maxLength) {
+        StringBuilder s = new StringBuilder();
+        for (int i = random.nextInt(maxLength + 1); i > 0; i--) {
+            s.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return s.toString();
+    }
+
+    /**
+     * Compares the size of the matcher for all the classes of the bundled signature, as ignored when checking
+     * with <code>ignoreDependencies</code>, to the size of a {@link java.util.HashSet} of those class names.
+     */
+    public void testFootprint() throws Exception {
+        Map<String, Clazz> classes;
+        try (InputStream in = getClass().getResourceAsStream("/java16-1.1.signature")) {
+            classes = SignatureChecker.loadClasses(in);
+        }
+        NameMatcher matcher = NameMatcher.compile(classes.keySet());
+        for (String name : classes.keySet()) {
+            assertTrue(name, matcher.matches(name));
+        }
+
+        long set = 0;
+        for (String name : classes.keySet()) {
+            // table slot, HashMap.Node, String and its byte[], assuming compact strings and compressed oops
+            set += 4 + 32 + 24 + align(16 + name.length());
+        }
+        long trie = 16;
+        for (Field field : NameMatcher.class.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers())) {
+                field.setAccessible(true);
+                Object array = field.get(matcher);
+                int width = array instanceof long[] ? 8 : array instanceof char[] ? 2 : 4;
+                trie += align(16 + (long) Array.getLength(array) * width);
+            }
+        }
+        assertTrue(
+                "expected the matcher (" + trie + " bytes) to be smaller than a set (" + set + " bytes)", trie < set);
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+}
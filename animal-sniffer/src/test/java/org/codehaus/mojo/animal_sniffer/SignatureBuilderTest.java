@@ -0,0 +1,511 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2012 Codehaus.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.codehaus.mojo.animal_sniffer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import junit.framework.TestCase;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class SignatureBuilderTest extends TestCase {
+
+    /**
+     * Builds a signature from the bundled one and classes merged into it, keeping all classes in memory or spilling
+     * them to temporary files after every class.
+     */
+    public void testMaximumClassesInMemory() throws IOException {
+        Path dir = Files.createTempDirectory("animal-sniffer");
+        try {
+            Files.write(dir.resolve("A.class"), newClass("a/A", "run"));
+            Files.write(dir.resolve("Object.class"), newClass("java/lang/Object", "extra"));
+            Files.write(dir.resolve("Z.class"), newClass("a/A", "call"));
+
+            byte[] expected = build(dir, 0, SignatureWriter.COMPACT_FORMAT);
+            assertArrayEquals(expected, build(dir, 1, SignatureWriter.COMPACT_FORMAT));
+            assertArrayEquals(expected, build(dir, 2, SignatureWriter.COMPACT_FORMAT));
+            // the legacy format may share strings differently, as Java serialization writes identical objects once
+            assertEquals(
+                    load(build(dir, 0, SignatureWriter.LEGACY_FORMAT)),
+                    load(build(dir, 1, SignatureWriter.LEGACY_FORMAT)));
+
+            Map<String, Clazz> classes = SignatureChecker.loadClasses(new ByteArrayInputStream(expected));
+            assertEquals(
+                    Arrays.asList("call()V", "<init>()V", "run()V"),
+                    Arrays.asList(classes.get("a/A").getSignatures().toArray()));
+            assertTrue(classes.get("java/lang/Object").getSignatures().contains("extra()V"));
+            assertTrue(classes.get("java/lang/Object").getSignatures().contains("hashCode()I"));
+        } finally {
+            Files.delete(dir.resolve("A.class"));
+            Files.delete(dir.resolve("Object.class"));
+            Files.delete(dir.resolve("Z.class"));
+            Files.delete(dir);
+        }
+    }
+
+    /**
+     * Builds a signature from two directories which both define a class, scanning them one by one and in parallel.
+     */
+    public void testThreads() throws IOException {
+        Path dir = Files.createTempDirectory("animal-sniffer");
+        Path[] files = {
+            dir.resolve("m1/a/A.class"), dir.resolve("m1/b/B.class"), dir.resolve("m2/a/A.class"),
+        };
+        try {
+            for (Path file : files) {
+                Files.createDirectories(file.getParent());
+            }
+            Files.write(files[0], newClass("a/A", "run"));
+            Files.write(files[1], newClass("b/B", "run"));
+            Files.write(files[2], newClass("a/A", "call"));
+
+            byte[] expected = build(dir, 1);
+            assertArrayEquals(expected, build(dir, 4));
+            Map<String, Clazz> classes = SignatureChecker.loadClasses(new ByteArrayInputStream(expected));
+            assertEquals(2, classes.size());
+            assertEquals(3, classes.get("a/A").getSignatures().size());
+        } finally {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+                Files.deleteIfExists(file.getParent());
+            }
+            for (Path file : files) {
+                Files.deleteIfExists(file.getParent().getParent());
+            }
+            Files.delete(dir);
+        }
+    }
+
+    /**
+     * Scans the directories below a path, like the modules of <code>jrt:/modules</code>, in parallel while keeping at
+     * most some classes in memory.
+     */
+    public void testThreadsMaximumClassesInMemory() throws IOException {
+        Path dir = Files.createTempDirectory("animal-sniffer");
+        List<Path> files = new ArrayList<>();
+        try {
+            for (int i = 0; i < 4; i++) {
+                for (int j = 0; j < 10; j++) {
+                    // every other module defines the same classes again with another method
+                    String name = "p" + i % 2 + "/C" + j;
+                    Path file = dir.resolve("m" + i).resolve(name + ".class");
+                    Files.createDirectories(file.getParent());
+                    Files.write(file, newClass(name, "m" + i));
+                    files.add(file);
+                }
+            }
+
+            byte[] expected = build(dir, 1, 0, 20);
+            for (int maximumClassesInMemory : new int[] {2, 3, 5, 8}) {
+                assertArrayEquals(expected, build(dir, 4, maximumClassesInMemory, maximumClassesInMemory));
+            }
+        } finally {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+            for (Path file : files) {
+                Files.deleteIfExists(file.getParent());
+                Files.deleteIfExists(file.getParent().getParent());
+            }
+            Files.delete(dir);
+        }
+    }
+
+    public void testProcessAll() throws IOException {
+        Path dir = Files.createTempDirectory("animal-sniffer");
+        List<File> files = Arrays.asList(
+                dir.resolve("z.jar").toFile(),
+                dir.resolve("a.jar").toFile(),
+                dir.resolve("m.jar").toFile());
+        try {
+            writeJar(files.get(0), "a/A", "call");
+            writeJar(files.get(1), "a/A", "run");
+            writeJar(files.get(2), "b/B", "run");
+
+            byte[] expected = build(files, 1);
+            assertArrayEquals(expected, build(files, 4));
+            Map<String, Clazz> classes = SignatureChecker.loadClasses(new ByteArrayInputStream(expected));
+            assertEquals(2, classes.size());
+            assertEquals(
+                    Arrays.asList("run()V", "<init>()V", "call()V"),
+                    new ArrayList<>(classes.get("a/A").getSignatures()));
+        } finally {
+            for (File file : files) {
+                Files.deleteIfExists(file.toPath());
+            }
+            Files.delete(dir);
+        }
+    }
+
+    /**
+     * Scans jar files in parallel while keeping at most some classes in memory, counting the classes held by this
+     * builder and by its workers together.
+     */
+    public void testProcessAllMaximumClassesInMemory() throws IOException {
+        Path dir = Files.createTempDirectory("animal-sniffer");
+        List<File> files = new ArrayList<>();
+        try {
+            for (int i = 0; i < 6; i++) {
+                File file = dir.resolve(i + ".jar").toFile();
+                files.add(file);
+                try (JarOutputStream out = new JarOutputStream(new FileOutputStream(file))) {
+                    for (int j = 0; j < 10; j++) {
+                        // every other jar file defines the same classes again with another method
+                        String name = "p" + i % 2 + "/C" + j;
+                        out.putNextEntry(new JarEntry(name + ".class"));
+                        out.write(newClass(name, "m" + i));
+                        out.closeEntry();
+                    }
+                }
+            }
+
+            byte[] expected = build(files, 1, 0, 20);
+            for (int maximumClassesInMemory : new int[] {2, 3, 5, 8}) {
+                assertArrayEquals(expected, build(files, 4, maximumClassesInMemory, maximumClassesInMemory));
+            }
+        } finally {
+            for (File file : files) {
+                Files.deleteIfExists(file.toPath());
+            }
+            Files.delete(dir);
+        }
+    }
+
+    public void testMembers() throws IOException {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, "a/A", null, "java/lang/Object", new String[] {"java/io/Closeable"});
+        cw.visitSource("A.java", null);
+        cw.visitField(Opcodes.ACC_PRIVATE, "size", "I", null, 1).visitEnd();
+        MethodVisitor mv =
+                cw.visitMethod(Opcodes.ACC_PUBLIC, "close", "()V", null, new String[] {"java/io/IOException"});
+        mv.visitCode();
+        Label start = new Label();
+        mv.visitLabel(start);
+        mv.visitLineNumber(1, start);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        cw.visitField(Opcodes.ACC_PUBLIC, "NAME", "Ljava/lang/String;", null, null)
+                .visitEnd();
+        cw.visitEnd();
+
+        Path dir = Files.createTempDirectory("animal-sniffer");
+        Path file = dir.resolve("A.class");
+        try {
+            Files.write(file, cw.toByteArray());
+            Clazz clazz = SignatureChecker.loadClasses(new ByteArrayInputStream(build(dir, 1)))
+                    .get("a/A");
+            assertEquals("java/lang/Object", clazz.getSuperClass());
+            assertEquals(Arrays.asList("java/io/Closeable"), Arrays.asList(clazz.getSuperInterfaces()));
+            assertEquals(
+                    Arrays.asList("size#I", "NAME#Ljava/lang/String;", "close()V"),
+                    new ArrayList<>(clazz.getSignatures()));
+        } finally {
+            Files.deleteIfExists(file);
+            Files.delete(dir);
+        }
+    }
+
+    /**
+     * The excluded class is not a valid class file, so it must not even be read.
+     */
+    public void testExclude() throws IOException {
+        Path dir = Files.createTempDirectory("animal-sniffer");
+        File jar = dir.resolve("a.jar").toFile();
+        try {
+            try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+                out.putNextEntry(new JarEntry("a/A.class"));
+                out.write(newClass("a/A", "run"));
+                out.putNextEntry(new JarEntry("b/B.class"));
+                out.write(new byte[] {1, 2, 3});
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            SignatureBuilder builder = new SignatureBuilder(out, new SignatureCheckerTest.TestLogger());
+            builder.addInclude("?.*");
+            builder.addExclude("b.*");
+            builder.processAll(Collections.singletonList(jar));
+            builder.close();
+            Map<String, Clazz> classes = SignatureChecker.loadClasses(new ByteArrayInputStream(out.toByteArray()));
+            assertEquals(Collections.singleton("a/A"), classes.keySet());
+        } finally {
+            Files.deleteIfExists(jar.toPath());
+            Files.delete(dir);
+        }
+    }
+
+    /**
+     * Classes below other directories of a jar file are not named after their location, so they are read and
+     * selected by their names.
+     */
+    public void testIncludeBelowOtherDirectory() throws IOException {
+        Path dir = Files.createTempDirectory("animal-sniffer");
+        File jar = dir.resolve("a.jar").toFile();
+        try {
+            try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+                out.putNextEntry(new JarEntry("BOOT-INF/classes/a/A.class"));
+                out.write(newClass("a/A", "run"));
+                out.putNextEntry(new JarEntry("classes/b/B.class"));
+                out.write(newClass("b/B", "run"));
+                out.putNextEntry(new JarEntry("classes/c/C.class"));
+                out.write(newClass("c/C", "run"));
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            SignatureBuilder builder = new SignatureBuilder(out, new SignatureCheckerTest.TestLogger());
+            builder.addInclude("a.*");
+            builder.addInclude("b.*");
+            builder.processAll(Collections.singletonList(jar));
+            builder.close();
+            Map<String, Clazz> classes = SignatureChecker.loadClasses(new ByteArrayInputStream(out.toByteArray()));
+            assertEquals(new TreeSet<>(Arrays.asList("a/A", "b/B")), new TreeSet<>(classes.keySet()));
+        } finally {
+            Files.deleteIfExists(jar.toPath());
+            Files.delete(dir);
+        }
+    }
+
+    /**
+     * A class stored under another name after a class stored under its own is still read and selected by its name.
+     */
+    public void testIncludeMisnamed() throws IOException {
+        Path dir = Files.createTempDirectory("animal-sniffer");
+        File jar = dir.resolve("a.jar").toFile();
+        try {
+            try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+                out.putNextEntry(new JarEntry("x/X.class"));
+                out.write(newClass("x/X", "run"));
+                out.putNextEntry(new JarEntry("y/Y.class"));
+                out.write(newClass("a/A", "run"));
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            SignatureBuilder builder = new SignatureBuilder(out, new SignatureCheckerTest.TestLogger());
+            builder.addInclude("a.*");
+            builder.processAll(Collections.singletonList(jar));
+            builder.close();
+            Map<String, Clazz> classes = SignatureChecker.loadClasses(new ByteArrayInputStream(out.toByteArray()));
+            assertEquals(Collections.singleton("a/A"), classes.keySet());
+        } finally {
+            Files.deleteIfExists(jar.toPath());
+            Files.delete(dir);
+        }
+    }
+
+    /**
+     * Excluded classes were still found, so a signature without classes is written, whether the files are scanned
+     * one by one or in parallel.
+     */
+    public void testExcludeAll() throws IOException {
+        Path dir = Files.createTempDirectory("animal-sniffer");
+        List<File> files = Arrays.asList(
+                dir.resolve("a.jar").toFile(), dir.resolve("b.jar").toFile());
+        try {
+            writeJar(files.get(0), "a/A", "run");
+            writeJar(files.get(1), "a/B", "run");
+            for (int threads = 1; threads <= 2; threads++) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                SignatureBuilder builder = new SignatureBuilder(out, new SignatureCheckerTest.TestLogger());
+                builder.addExclude("a.*");
+                builder.setThreads(threads);
+                builder.processAll(files);
+                builder.close();
+                assertEquals(
+                        Collections.emptyMap(),
+                        SignatureChecker.loadClasses(new ByteArrayInputStream(out.toByteArray())));
+            }
+        } finally {
+            for (File file : files) {
+                Files.deleteIfExists(file.toPath());
+            }
+            Files.delete(dir);
+        }
+    }
+
+    /**
+     * Verifies that a class of a later base signature replaces the class of the same name of an earlier one, even if
+     * their superclasses differ.
+     */
+    public void testBaseSignaturesReplace() throws IOException {
+        Clazz first = new Clazz("a/A", Collections.singleton("run()V"), "java/lang/Object", new String[0]);
+        Clazz second = new Clazz("a/A", Collections.singleton("call()V"), "a/B", new String[] {"a/I"});
+        InputStream[] in = {
+            new ByteArrayInputStream(signature(first, new Clazz("a/B", "java/lang/Object", new String[0]))),
+            new ByteArrayInputStream(signature(second))
+        };
+        Path dir = Files.createTempDirectory("animal-sniffer");
+        File jar = dir.resolve("c.jar").toFile();
+        try {
+            writeJar(jar, "c/C", "run");
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            SignatureBuilder builder = new SignatureBuilder(in, out, new SignatureCheckerTest.TestLogger());
+            builder.processAll(Collections.singletonList(jar));
+            builder.close();
+            assertEquals(
+                    Arrays.asList(
+                            "a/A a/B [a/I] [call()V]",
+                            "a/B java/lang/Object [] []",
+                            "c/C java/lang/Object [] [run()V, <init>()V]"),
+                    load(out.toByteArray()));
+        } finally {
+            Files.deleteIfExists(jar.toPath());
+            Files.delete(dir);
+        }
+    }
+
+    private static byte[] signature(Clazz... classes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (SignatureWriter writer = SignatureWriter.create(out, SignatureWriter.LEGACY_FORMAT)) {
+            for (Clazz clazz : classes) {
+                writer.write(clazz);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeJar(File file, String name, String method) throws IOException {
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(file))) {
+            out.putNextEntry(new JarEntry(name + ".class"));
+            out.write(newClass(name, method));
+            out.closeEntry();
+        }
+    }
+
+    private static byte[] build(List<File> files, int threads) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SignatureBuilder builder = new SignatureBuilder(out, new SignatureCheckerTest.TestLogger());
+        builder.setFormatVersion(SignatureWriter.COMPACT_FORMAT);
+        builder.setThreads(threads);
+        builder.processAll(files);
+        builder.close();
+        return out.toByteArray();
+    }
+
+    /**
+     * Builds a signature from the given files and checks the number of classes kept in memory at once.
+     */
+    private static byte[] build(List<File> files, int threads, int maximumClassesInMemory, int peak)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SignatureBuilder builder = new SignatureBuilder(out, new SignatureCheckerTest.TestLogger());
+        builder.setFormatVersion(SignatureWriter.COMPACT_FORMAT);
+        builder.setThreads(threads);
+        builder.setMaximumClassesInMemory(maximumClassesInMemory);
+        builder.processAll(files);
+        builder.close();
+        assertPeak(builder, maximumClassesInMemory, peak);
+        return out.toByteArray();
+    }
+
+    private static byte[] build(Path dir, int threads) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SignatureBuilder builder = new SignatureBuilder(out, new SignatureCheckerTest.TestLogger());
+        builder.setFormatVersion(SignatureWriter.COMPACT_FORMAT);
+        builder.setThreads(threads);
+        builder.process(dir);
+        builder.close();
+        return out.toByteArray();
+    }
+
+    /**
+     * Builds a signature from the class files below the given directory and checks the number of classes kept in
+     * memory at once.
+     */
+    private static byte[] build(Path dir, int threads, int maximumClassesInMemory, int peak) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SignatureBuilder builder = new SignatureBuilder(out, new SignatureCheckerTest.TestLogger());
+        builder.setFormatVersion(SignatureWriter.COMPACT_FORMAT);
+        builder.setThreads(threads);
+        builder.setMaximumClassesInMemory(maximumClassesInMemory);
+        builder.process(dir);
+        builder.close();
+        assertPeak(builder, maximumClassesInMemory, peak);
+        return out.toByteArray();
+    }
+
+    private static void assertPeak(SignatureBuilder builder, int maximumClassesInMemory, int peak) {
+        if (maximumClassesInMemory == 0) {
+            assertEquals(peak, builder.getPeakClassesInMemory());
+        } else {
+            assertTrue(builder.getPeakClassesInMemory() + " > " + peak, builder.getPeakClassesInMemory() <= peak);
+        }
+    }
+
+    /**
+     * Returns the classes of the signature in their order, each with its super types and member signatures in order.
+     */
+    private static List<String> load(byte[] signature) throws IOException {
+        List<String> classes = new ArrayList<>();
+        try (SignatureReader reader = SignatureReader.open(new ByteArrayInputStream(signature))) {
+            Clazz c;
+            while ((c = reader.read()) != null) {
+                classes.add(c.getName() + " " + c.getSuperClass() + " " + Arrays.toString(c.getSuperInterfaces()) + " "
+                        + c.getSignatures());
+            }
+        }
+        return classes;
+    }
+
+    private byte[] build(Path dir, int maximumClassesInMemory, int formatVersion) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = getClass().getResourceAsStream("/java16-1.1.signature")) {
+            SignatureBuilder builder =
+                    new SignatureBuilder(new InputStream[] {in}, out, new SignatureCheckerTest.TestLogger());
+            builder.setFormatVersion(formatVersion);
+            builder.setMaximumClassesInMemory(maximumClassesInMemory);
+            builder.process(dir.toFile());
+            builder.close();
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] newClass(String name, String method) {
+        ClassWriter cw = new ClassWriter(0);
+        String superName = "java/lang/Object".equals(name) ? null : "java/lang/Object";
+        cw.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC, name, null, superName, null);
+        cw.visitMethod(Opcodes.ACC_PUBLIC, method, "()V", null, null).visitEnd();
+        if (superName != null) {
+            cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null).visitEnd();
+        }
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2012 Codehaus.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.codehaus.mojo.animal_sniffer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class SignatureCacheTest extends TestCase {
+    private File directory;
+
+    @Override
+    protected void setUp() throws Exception {
+        directory = Files.createTempDirectory("animal-sniffer-cache").toFile();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Files.delete(file.toPath());
+            }
+        }
+        Files.delete(directory.toPath());
+    }
+
+    private File copySignature(String name) throws Exception {
+        File file = new File(directory, name);
+        try (InputStream in = getClass().getResourceAsStream("/java16-1.1.signature")) {
+            Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return file;
+    }
+
+    public void testHitsAndMisses() throws Exception {
+        File signature = copySignature("java16.signature");
+        SignatureCache cache = new SignatureCache(2);
+
+        Map<String, Clazz> classes = cache.get(signature);
+        assertNotNull(classes.get("java/lang/Object"));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        assertSame(classes, cache.get(new File(directory, "../" + directory.getName() + "/java16.signature")));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        assertTrue(signature.setLastModified(signature.lastModified() - 10000));
+        assertNotSame(classes, cache.get(signature));
+        assertEquals(2, cache.getMissCount());
+        assertEquals(1, cache.size());
+    }
+
+    public void testSameSizeAndTime() throws Exception {
+        File signature = new File(directory, "a.signature");
+        Files.write(signature.toPath(), signature("a/A"));
+        long lastModified = signature.lastModified();
+        SignatureCache cache = new SignatureCache(2);
+        assertNotNull(cache.get(signature).get("a/A"));
+
+        byte[] other = signature("a/B");
+        assertEquals(signature.length(), other.length);
+        Files.write(signature.toPath(), other);
+        assertTrue(signature.setLastModified(lastModified));
+        assertNotNull(cache.get(signature).get("a/B"));
+        assertEquals(2, cache.getMissCount());
+    }
+
+    private static byte[] signature(String name) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (SignatureWriter writer = SignatureWriter.create(out, SignatureWriter.LEGACY_FORMAT)) {
+            writer.write(new Clazz(name, Collections.singleton("run()V"), "java/lang/Object", new String[0]));
+        }
+        return out.toByteArray();
+    }
+
+    public void testEviction() throws Exception {
+        File a = copySignature("a.signature");
+        File b = copySignature("b.signature");
+        File c = copySignature("c.signature");
+        SignatureCache cache = new SignatureCache(2);
+
+        cache.get(a);
+        cache.get(b);
+        cache.get(a);
+        cache.get(c); // evicts b, the least recently used
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getHitCount());
+
+        cache.get(a);
+        assertEquals(2, cache.getHitCount());
+        cache.get(b);
+        assertEquals(4, cache.getMissCount());
+
+        cache.setMaximumSize(0);
+        assertEquals(0, cache.size());
+        cache.get(a);
+        cache.get(a);
+        assertEquals(6, cache.getMissCount());
+    }
+}
@@ -26,17 +26,39 @@ package org.codehaus.mojo.animal_sniffer;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InvalidClassException;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
 import junit.framework.TestCase;
 import org.codehaus.mojo.animal_sniffer.logging.Logger;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
 
 import static org.junit.Assert.assertArrayEquals;
 
@@ -112,6 +134,140 @@ public class SignatureCheckerTest extends TestCase {
         assertArrayEquals(new String[0], class2.getSuperInterfaces());
     }
 
+    public void testLoadClasses_CompactFormat() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (SignatureWriter writer = SignatureWriter.create(out, SignatureWriter.COMPACT_FORMAT)) {
+            writer.write(new Clazz(
+                    "my/Class1",
+                    new LinkedHashSet<>(Arrays.asList("field1#Ljava/lang/String;", "method1(Ljava/lang/String;)V")),
+                    "java/lang/Object",
+                    new String[] {"my/SuperInterface"}));
+            writer.write(new Clazz("my/Class2", Collections.emptySet(), null, new String[0]));
+        }
+
+        Map<String, Clazz> classes = SignatureChecker.loadClasses(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(2, classes.size());
+
+        Clazz class1 = classes.get("my/Class1");
+        assertEquals("my/Class1", class1.getName());
+        assertEquals(
+                new LinkedHashSet<>(Arrays.asList("field1#Ljava/lang/String;", "method1(Ljava/lang/String;)V")),
+                class1.getSignatures());
+        assertEquals("java/lang/Object", class1.getSuperClass());
+        assertArrayEquals(new String[] {"my/SuperInterface"}, class1.getSuperInterfaces());
+
+        Clazz class2 = classes.get("my/Class2");
+        assertEquals("my/Class2", class2.getName());
+        assertEquals(Collections.emptySet(), class2.getSignatures());
+        assertNull(class2.getSuperClass());
+        assertArrayEquals(new String[0], class2.getSuperInterfaces());
+    }
+
+    public void testLoadClasses_InheritedMembers() throws Exception {
+        Map<String, Clazz> classes = new LinkedHashMap<>();
+        classes.put(
+                "my/Base",
+                new Clazz(
+                        "my/Base",
+                        new LinkedHashSet<>(Arrays.asList("<init>()V", "base()V")),
+                        "java/lang/Object",
+                        new String[] {"my/Interface"}));
+        classes.put(
+                "my/Interface",
+                new Clazz("my/Interface", Collections.singleton("run()V"), "java/lang/Object", new String[0]));
+        classes.put("my/Sub", new Clazz("my/Sub", Collections.singleton("sub#I"), "my/Base", new String[0]));
+        MemberTable.flatten(classes);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (SignatureWriter writer = new CompactSignatureWriter(out, true)) {
+            for (Clazz c : classes.values()) {
+                writer.write(c);
+            }
+        }
+
+        Map<String, Clazz> loaded = SignatureChecker.loadClasses(new ByteArrayInputStream(out.toByteArray()));
+        Clazz sub = loaded.get("my/Sub");
+        assertEquals(Collections.singleton("sub#I"), sub.getSignatures());
+        assertTrue(sub.isInheritedMembersKnown());
+        assertTrue(sub.inherits("base()V"));
+        assertTrue(sub.inherits("run()V"));
+        assertFalse(sub.inherits("<init>()V"));
+        assertFalse(sub.inherits("sub#I"));
+        assertFalse(sub.inherits("toString()Ljava/lang/String;"));
+        assertTrue(loaded.get("my/Base").inherits("run()V"));
+        assertFalse(loaded.get("my/Interface").inherits("run()V"));
+
+        assertFalse(SignatureChecker.loadClasses(getClass().getResourceAsStream("/java16-1.1.signature"))
+                .get("java/lang/String")
+                .isInheritedMembersKnown());
+    }
+
+    public void testLoadClasses_UnknownFormat() throws Exception {
+        try {
+            SignatureChecker.loadClasses(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5, 6}));
+            fail();
+        } catch (IOException e) {
+            assertEquals("Unknown signature format", e.getMessage());
+        }
+    }
+
+    public void testLoadClasses_CorruptPoolSize() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (SignatureWriter writer = SignatureWriter.create(out, SignatureWriter.COMPACT_FORMAT)) {
+            writer.write(new Clazz("my/Class1", "java/lang/Object", new String[0]));
+        }
+        byte[] signature = out.toByteArray();
+        int headerSize = CompactSignatureWriter.MAGIC.length + 4;
+        byte[] body;
+        try (InputStream in =
+                new GZIPInputStream(new ByteArrayInputStream(signature, headerSize, signature.length - headerSize))) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, n);
+            }
+            body = bytes.toByteArray();
+        }
+
+        // a negative size, and one far larger than the data
+        for (int poolSize : new int[] {-1, Integer.MAX_VALUE}) {
+            ByteArrayOutputStream corrupt = new ByteArrayOutputStream();
+            corrupt.write(signature, 0, headerSize);
+            try (DataOutputStream gz = new DataOutputStream(new GZIPOutputStream(corrupt))) {
+                gz.writeInt(poolSize);
+                gz.write(body, 4, body.length - 4);
+            }
+            try {
+                SignatureChecker.loadClasses(new ByteArrayInputStream(corrupt.toByteArray()));
+                fail();
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+
+    public void testLoadClasses_CorruptRecord() throws Exception {
+        Clazz clazz = new Clazz(
+                "my/Class1",
+                new LinkedHashSet<>(Arrays.asList("field1#Ljava/lang/String;", "method1(Ljava/lang/String;)V")),
+                "java/lang/Object",
+                new String[] {"my/SuperInterface"});
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        new SignatureRecordEncoder().encode(clazz, record);
+        String[] pool = {"my/Class1"};
+
+        // a record cut short in the middle of a number, and a record referring past the end of the pool
+        for (byte[] corrupt : Arrays.asList(new byte[] {0, 1, (byte) 0x80}, record.toByteArray())) {
+            try {
+                CompactSignatureReader.decode(ByteBuffer.wrap(corrupt), i -> pool[i], null);
+                fail();
+            } catch (IOException e) {
+                assertEquals("Corrupt signature", e.getMessage());
+            }
+        }
+    }
+
     /**
      * Verifies that only certain allowed classes may be deserialized.
      */
@@ -210,6 +366,529 @@ public class SignatureCheckerTest extends TestCase {
         assertArrayEquals(new String[0], class1.getSuperInterfaces());
     }
 
+    /**
+     * Like {@link #testLoadClasses_Roundtrip()}, with the signature written in the compact format.
+     */
+    public void testLoadClasses_RoundtripCompact() throws Exception {
+        ClassWriter cw = new ClassWriter(0);
+        cw.visit(
+                Opcodes.V1_8,
+                Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT,
+                "mypackage/MyClass",
+                null,
+                "java/lang/Object",
+                null);
+        cw.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL, "i", "I", null, 1)
+                .visitEnd();
+        cw.visitEnd();
+        Path tempFile = Files.createTempFile("animal-sniffer-test-class", ".class");
+        Files.write(tempFile, cw.toByteArray());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SignatureBuilder signatureBuilder = new SignatureBuilder(out, new TestLogger());
+        signatureBuilder.setFormatVersion(SignatureWriter.COMPACT_FORMAT);
+        signatureBuilder.process(tempFile.toFile());
+        signatureBuilder.close();
+
+        Files.delete(tempFile);
+
+        Map<String, Clazz> classes = SignatureChecker.loadClasses(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(1, classes.size());
+
+        Clazz class1 = classes.get("mypackage/MyClass");
+        assertEquals("mypackage/MyClass", class1.getName());
+        assertEquals(Collections.singleton("i#I"), class1.getSignatures());
+        assertEquals("java/lang/Object", class1.getSuperClass());
+        assertArrayEquals(new String[0], class1.getSuperInterfaces());
+    }
+
+    public void testProcess_Parallel() throws Exception {
+        File classes = new File(SignatureChecker.class
+                .getProtectionDomain()
+                .getCodeSource()
+                .getLocation()
+                .toURI());
+
+        List<String> serial = check(classes, 1);
+        assertFalse(serial.isEmpty());
+
+        assertEquals(serial, check(classes, 4));
+        assertEquals(serial, check(classes, 4));
+    }
+
+    /**
+     * Verifies that errors are reported with shorter file names first, then by name, whether checking serially or
+     * in parallel.
+     */
+    public void testProcess_ReportOrder() throws Exception {
+        Path dir = Files.createTempDirectory("animal-sniffer");
+        List<String> names = Arrays.asList("B.class", "Aaa.class", "Outer$1.class");
+        try {
+            List<String> expected = new ArrayList<>();
+            for (String name : names) {
+                Files.write(dir.resolve(name), innerClass());
+                expected.add(dir.resolve(name) + ": Undefined reference: void java.util.Objects.hash()");
+            }
+            assertEquals(expected, check(dir.toFile(), 1));
+            assertEquals(expected, check(dir.toFile(), 4));
+        } finally {
+            for (String name : names) {
+                Files.deleteIfExists(dir.resolve(name));
+            }
+            Files.delete(dir);
+        }
+    }
+
+    public void testProcess_InnerClassOfIgnoredMethod() throws Exception {
+        Path dir = Files.createTempDirectory("animal-sniffer");
+        try {
+            // Outer$1.class sorts before Outer.class, so the inner class is visited first
+            Files.write(dir.resolve("Outer.class"), outerClass(true));
+            Files.write(dir.resolve("Outer$1.class"), innerClass());
+            assertEquals(Collections.emptyList(), check(dir.toFile(), 1));
+            assertEquals(Collections.emptyList(), check(dir.toFile(), 2));
+
+            Files.write(dir.resolve("Outer.class"), outerClass(false));
+            assertEquals(
+                    Collections.singletonList(
+                            dir.resolve("Outer$1.class") + ": Undefined reference: void java.util.Objects.hash()"),
+                    check(dir.toFile(), 1));
+        } finally {
+            Files.delete(dir.resolve("Outer$1.class"));
+            Files.delete(dir.resolve("Outer.class"));
+            Files.delete(dir);
+        }
+    }
+
+    public void testProcess_MultiCatch() throws Exception {
+        Path dir = Files.createTempDirectory("animal-sniffer");
+        try {
+            // the common super type of the caught exceptions is only found in the frame of the handler
+            Files.write(dir.resolve("Multi.class"), multiCatchClass());
+            assertEquals(
+                    Collections.singletonList(
+                            dir.resolve("Multi.class") + ":7: Undefined reference: ReflectiveOperationException"),
+                    check(dir.toFile(), 1));
+        } finally {
+            Files.delete(dir.resolve("Multi.class"));
+            Files.delete(dir);
+        }
+    }
+
+    public void testProcess_ResultCache() throws Exception {
+        Path dir = Files.createTempDirectory("animal-sniffer");
+        File file = dir.resolve("results").toFile();
+        try {
+            Files.write(dir.resolve("Outer.class"), outerClass(false));
+            Files.write(dir.resolve("Outer$1.class"), innerClass());
+            List<String> expected = Collections.singletonList(
+                    dir.resolve("Outer$1.class") + ": Undefined reference: void java.util.Objects.hash()");
+            CheckResultCache cache = new CheckResultCache(file, "java16-1.1");
+            assertEquals(expected, check(dir.toFile(), 1, cache));
+            cache.save();
+
+            // the error is only reported against this signature because the results for the same configuration
+            // are replayed
+            Map<String, Clazz> objects = Collections.singletonMap(
+                    "java/util/Objects",
+                    new Clazz(
+                            "java/util/Objects", Collections.singleton("hash()V"), "java/lang/Object", new String[0]));
+            cache = new CheckResultCache(file, "java16-1.1");
+            assertEquals(expected, check(dir.toFile(), objects, 2, cache));
+            cache.save();
+            assertEquals(expected, check(dir.toFile(), objects, 1, new CheckResultCache(file, "java16-1.1")));
+            assertEquals(
+                    Collections.emptyList(), check(dir.toFile(), objects, 1, new CheckResultCache(file, "objects")));
+
+            // changed classes are checked again
+            Files.write(dir.resolve("Outer.class"), outerClass(true));
+            assertEquals(Collections.emptyList(), check(dir.toFile(), 1, new CheckResultCache(file, "java16-1.1")));
+        } finally {
+            Files.deleteIfExists(file.toPath());
+            Files.delete(dir.resolve("Outer$1.class"));
+            Files.delete(dir.resolve("Outer.class"));
+            Files.delete(dir);
+        }
+    }
+
+    /**
+     * Callers ignore the classes they check, adding or removing one only checks the classes referring to it again.
+     */
+    public void testProcess_ResultCacheLocalClasses() throws Exception {
+        Path dir = Files.createTempDirectory("animal-sniffer");
+        File file = dir.resolve("results").toFile();
+        try {
+            Files.write(dir.resolve("Outer.class"), outerClass(false));
+            Files.write(dir.resolve("Outer$1.class"), innerClass());
+            Files.write(dir.resolve("Uses.class"), usesClass());
+            Files.write(dir.resolve("Local.class"), localClass());
+            List<String> expected = Collections.singletonList(
+                    dir.resolve("Outer$1.class") + ": Undefined reference: void java.util.Objects.hash()");
+            Map<String, Clazz> objects = Collections.singletonMap(
+                    "java/util/Objects",
+                    new Clazz(
+                            "java/util/Objects", Collections.singleton("hash()V"), "java/lang/Object", new String[0]));
+            CheckResultCache cache = new CheckResultCache(file, "java16-1.1");
+            assertEquals(expected, check(dir.toFile(), Arrays.asList("Outer", "Outer$1", "Uses", "Local"), cache));
+            cache.save();
+
+            // the results of the classes not referring to the removed class are replayed
+            Files.delete(dir.resolve("Local.class"));
+            cache = new CheckResultCache(file, "java16-1.1");
+            assertEquals(
+                    Arrays.asList(
+                            dir.resolve("Uses.class") + ": Undefined reference: void Local.run()", expected.get(0)),
+                    check(dir.toFile(), objects, Arrays.asList("Outer", "Outer$1", "Uses"), cache));
+            cache.save();
+
+            // and are when adding it again
+            Files.write(dir.resolve("Local.class"), localClass());
+            assertEquals(
+                    expected,
+                    check(
+                            dir.toFile(),
+                            objects,
+                            Arrays.asList("Outer", "Outer$1", "Uses", "Local"),
+                            new CheckResultCache(file, "java16-1.1")));
+        } finally {
+            Files.deleteIfExists(file.toPath());
+            Files.deleteIfExists(dir.resolve("Local.class"));
+            Files.delete(dir.resolve("Uses.class"));
+            Files.delete(dir.resolve("Outer$1.class"));
+            Files.delete(dir.resolve("Outer.class"));
+            Files.delete(dir);
+        }
+    }
+
+    public void testProcess_ResultCacheCorrupt() throws Exception {
+        Path dir = Files.createTempDirectory("animal-sniffer");
+        File file = dir.resolve("results").toFile();
+        try {
+            Files.write(dir.resolve("Outer.class"), outerClass(false));
+            Files.write(dir.resolve("Outer$1.class"), innerClass());
+            List<String> expected = Collections.singletonList(
+                    dir.resolve("Outer$1.class") + ": Undefined reference: void java.util.Objects.hash()");
+            Map<String, Clazz> objects = Collections.singletonMap(
+                    "java/util/Objects",
+                    new Clazz(
+                            "java/util/Objects", Collections.singleton("hash()V"), "java/lang/Object", new String[0]));
+            CheckResultCache cache = new CheckResultCache(file, "java16-1.1");
+            assertEquals(expected, check(dir.toFile(), 1, cache));
+            cache.save();
+            byte[] saved = Files.readAllBytes(file.toPath());
+
+            // a truncated or garbled file is a miss, so the classes are checked against this signature again
+            Files.write(file.toPath(), Arrays.copyOf(saved, saved.length - 5));
+            assertEquals(
+                    Collections.emptyList(), check(dir.toFile(), objects, 1, new CheckResultCache(file, "java16-1.1")));
+            byte[] garbled = saved.clone();
+            Arrays.fill(garbled, 12, garbled.length, (byte) 0xff);
+            Files.write(file.toPath(), garbled);
+            cache = new CheckResultCache(file, "java16-1.1");
+            assertEquals(Collections.emptyList(), check(dir.toFile(), objects, 1, cache));
+
+            // saving replaces the file
+            cache.save();
+            assertEquals(Collections.emptyList(), check(dir.toFile(), 1, new CheckResultCache(file, "java16-1.1")));
+
+            // as does a file of another version
+            byte[] version = saved.clone();
+            version[7]++;
+            Files.write(file.toPath(), version);
+            cache = new CheckResultCache(file, "java16-1.1");
+            assertEquals(expected, check(dir.toFile(), 1, cache));
+            cache.save();
+            assertEquals(expected, check(dir.toFile(), objects, 1, new CheckResultCache(file, "java16-1.1")));
+        } finally {
+            Files.deleteIfExists(file.toPath());
+            Files.delete(dir.resolve("Outer$1.class"));
+            Files.delete(dir.resolve("Outer.class"));
+            Files.delete(dir);
+        }
+    }
+
+    /**
+     * A class whose references are all found is not even visited.
+     */
+    public void testIsResolvable() throws Exception {
+        byte[] image = resolvingClass(mv -> {
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/System", "currentTimeMillis", "()J", false);
+            mv.visitInsn(Opcodes.POP2);
+            mv.visitFieldInsn(Opcodes.GETSTATIC, "java/lang/System", "out", "Ljava/io/PrintStream;");
+            mv.visitTypeInsn(Opcodes.CHECKCAST, "java/lang/Appendable");
+            mv.visitInsn(Opcodes.POP);
+            mv.visitInvokeDynamicInsn("run", "()Ljava/lang/Runnable;", LAMBDA_METAFACTORY, lambdaArguments("yield"));
+            mv.visitInsn(Opcodes.POP);
+        });
+        Map<String, Clazz> signature = lambdaSignature();
+        SignatureChecker checker =
+                new SignatureChecker(signature, Collections.singleton("org.codehaus.*"), new TestLogger());
+        assertTrue(checker.isResolvable(new ClassReader(image)));
+        assertEquals(Collections.emptyList(), check(image, signature));
+
+        signature.remove("java/lang/Appendable");
+        assertFalse(checker.isResolvable(new ClassReader(image)));
+    }
+
+    /**
+     * A class referring to a missing class, field, method, call site type or method handle is still reported.
+     */
+    public void testIsResolvable_Missing() throws Exception {
+        Map<String, Clazz> signature = lambdaSignature();
+        SignatureChecker checker =
+                new SignatureChecker(signature, Collections.singleton("org.codehaus.*"), new TestLogger());
+
+        byte[] missingClass = resolvingClass(mv -> {
+            mv.visitInsn(Opcodes.ACONST_NULL);
+            mv.visitTypeInsn(Opcodes.CHECKCAST, "java/util/Objects");
+            mv.visitInsn(Opcodes.POP);
+        });
+        byte[] missingField = resolvingClass(mv -> {
+            mv.visitFieldInsn(Opcodes.GETSTATIC, "java/lang/System", "console", "Ljava/io/PrintStream;");
+            mv.visitInsn(Opcodes.POP);
+        });
+        byte[] missingMethod = resolvingClass(mv -> {
+            mv.visitInsn(Opcodes.ACONST_NULL);
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/String", "isBlank", "()Z", false);
+            mv.visitInsn(Opcodes.POP);
+        });
+        byte[] missingCallSiteType = resolvingClass(mv -> {
+            mv.visitInvokeDynamicInsn(
+                    "get", "()Ljava/util/function/Supplier;", LAMBDA_METAFACTORY, lambdaArguments("yield"));
+            mv.visitInsn(Opcodes.POP);
+        });
+        byte[] missingMethodHandle = resolvingClass(mv -> {
+            mv.visitInvokeDynamicInsn(
+                    "run", "()Ljava/lang/Runnable;", LAMBDA_METAFACTORY, lambdaArguments("onSpinWait"));
+            mv.visitInsn(Opcodes.POP);
+        });
+
+        String prefix = "org/codehaus/A: Undefined reference: ";
+        assertMissing(checker, missingClass, signature, prefix + "java.util.Objects");
+        assertMissing(checker, missingField, signature, prefix + "java.io.PrintStream System.console");
+        assertMissing(checker, missingMethod, signature, prefix + "boolean String.isBlank()");
+        assertMissing(checker, missingCallSiteType, signature, prefix + "java.util.function.Supplier");
+        assertMissing(checker, missingMethodHandle, signature, prefix + "void Thread.onSpinWait()");
+    }
+
+    private static final Handle LAMBDA_METAFACTORY = new Handle(
+            Opcodes.H_INVOKESTATIC,
+            "java/lang/invoke/LambdaMetafactory",
+            "metafactory",
+            "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;"
+                    + "Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodHandle;Ljava/lang/invoke/MethodType;)"
+                    + "Ljava/lang/invoke/CallSite;",
+            false);
+
+    /**
+     * Returns the arguments of {@link #LAMBDA_METAFACTORY} for a runnable calling the given static method of
+     * <code>Thread</code>.
+     */
+    private static Object[] lambdaArguments(String method) {
+        return new Object[] {
+            Type.getType("()V"),
+            new Handle(Opcodes.H_INVOKESTATIC, "java/lang/Thread", method, "()V", false),
+            Type.getType("()V")
+        };
+    }
+
+    /**
+     * Returns the Java 1.6 signature with the types lambda expressions refer to.
+     */
+    private Map<String, Clazz> lambdaSignature() throws IOException {
+        Map<String, Clazz> signature;
+        try (InputStream in = getClass().getResourceAsStream("/java16-1.1.signature")) {
+            signature = SignatureChecker.loadClasses(in);
+        }
+        signature.put(
+                "java/lang/invoke/LambdaMetafactory",
+                new Clazz(
+                        "java/lang/invoke/LambdaMetafactory",
+                        Collections.singleton(LAMBDA_METAFACTORY.getName() + LAMBDA_METAFACTORY.getDesc()),
+                        "java/lang/Object",
+                        new String[0]));
+        signature.put(
+                "java/lang/invoke/CallSite",
+                new Clazz("java/lang/invoke/CallSite", Collections.emptySet(), "java/lang/Object", new String[0]));
+        return signature;
+    }
+
+    private static void assertMissing(
+            SignatureChecker checker, byte[] image, Map<String, Clazz> signature, String error) throws IOException {
+        assertFalse(checker.isResolvable(new ClassReader(image)));
+        assertEquals(Collections.singletonList(error), check(image, signature));
+    }
+
+    private static List<String> check(byte[] image, Map<String, Clazz> signature) throws IOException {
+        Path dir = Files.createTempDirectory("animal-sniffer");
+        try {
+            Files.write(dir.resolve("A.class"), image);
+            List<String> errors = new ArrayList<>();
+            for (String error : check(dir.toFile(), signature, 1, null)) {
+                errors.add(error.replace(dir.resolve("A.class").toString(), "org/codehaus/A"));
+            }
+            return errors;
+        } finally {
+            Files.delete(dir.resolve("A.class"));
+            Files.delete(dir);
+        }
+    }
+
+    /**
+     * Returns a class whose static <code>run</code> method has the given code, and which has a field of an interface
+     * type and a method returning a class type, so that those are looked up too.
+     */
+    private static byte[] resolvingClass(Consumer<MethodVisitor> code) {
+        ClassWriter cw = new ClassWriter(0);
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, "org/codehaus/A", null, "java/lang/Object", null);
+        cw.visitField(Opcodes.ACC_PRIVATE, "list", "Ljava/util/List;", null, null)
+                .visitEnd();
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_STATIC, "name", "()Ljava/lang/String;", null, null);
+        mv.visitCode();
+        mv.visitInsn(Opcodes.ACONST_NULL);
+        mv.visitInsn(Opcodes.ARETURN);
+        mv.visitMaxs(1, 0);
+        mv.visitEnd();
+        mv = cw.visitMethod(Opcodes.ACC_STATIC, "run", "()V", null, null);
+        mv.visitCode();
+        code.accept(mv);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(2, 0);
+        mv.visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private static byte[] multiCatchClass() {
+        ClassWriter cw = new ClassWriter(0);
+        cw.visit(Opcodes.V1_7, Opcodes.ACC_PUBLIC, "Multi", null, "java/lang/Object", null);
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "run", "()V", null, null);
+        mv.visitCode();
+        Label start = new Label();
+        Label end = new Label();
+        Label handler = new Label();
+        mv.visitTryCatchBlock(start, end, handler, "java/lang/ClassNotFoundException");
+        mv.visitTryCatchBlock(start, end, handler, "java/lang/NoSuchMethodException");
+        mv.visitLabel(start);
+        mv.visitInsn(Opcodes.NOP);
+        mv.visitLabel(end);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitLabel(handler);
+        mv.visitLineNumber(7, handler);
+        mv.visitFrame(
+                Opcodes.F_FULL, 1, new Object[] {"Multi"}, 1, new Object[] {"java/lang/ReflectiveOperationException"});
+        mv.visitInsn(Opcodes.POP);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(1, 1);
+        mv.visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private static byte[] outerClass(boolean ignore) {
+        ClassWriter cw = new ClassWriter(0);
+        cw.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC, "Outer", null, "java/lang/Object", null);
+        cw.visitInnerClass("Outer$1", null, null, 0);
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "run", "()V", null, null);
+        if (ignore) {
+            mv.visitAnnotation(SignatureChecker.toAnnotationDescriptor(SignatureChecker.ANNOTATION_FQN), false)
+                    .visitEnd();
+        }
+        mv.visitCode();
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 1);
+        mv.visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private static byte[] innerClass() {
+        ClassWriter cw = new ClassWriter(0);
+        cw.visit(Opcodes.V1_6, 0, "Outer$1", null, "java/lang/Object", null);
+        cw.visitOuterClass("Outer", "run", "()V");
+        cw.visitInnerClass("Outer$1", null, null, 0);
+        MethodVisitor mv = cw.visitMethod(0, "call", "()V", null, null);
+        mv.visitCode();
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/util/Objects", "hash", "()V", false);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 1);
+        mv.visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private static byte[] usesClass() {
+        ClassWriter cw = new ClassWriter(0);
+        cw.visit(Opcodes.V1_6, 0, "Uses", null, "java/lang/Object", null);
+        MethodVisitor mv = cw.visitMethod(0, "call", "()V", null, null);
+        mv.visitCode();
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, "Local", "run", "()V", false);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 1);
+        mv.visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private static byte[] localClass() {
+        ClassWriter cw = new ClassWriter(0);
+        cw.visit(Opcodes.V1_6, 0, "Local", null, "java/lang/Object", null);
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_STATIC, "run", "()V", null, null);
+        mv.visitCode();
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private List<String> check(File classes, Collection<String> ignores, CheckResultCache cache) throws IOException {
+        try (InputStream in = getClass().getResourceAsStream("/java16-1.1.signature")) {
+            return check(classes, SignatureChecker.loadClasses(in), ignores, cache);
+        }
+    }
+
+    private List<String> check(File classes, int threads) throws IOException {
+        return check(classes, threads, null);
+    }
+
+    private List<String> check(File classes, int threads, CheckResultCache cache) throws IOException {
+        try (InputStream in = getClass().getResourceAsStream("/java16-1.1.signature")) {
+            return check(classes, SignatureChecker.loadClasses(in), threads, cache);
+        }
+    }
+
+    private static List<String> check(
+            File classes, Map<String, Clazz> signature, Collection<String> ignores, CheckResultCache cache)
+            throws IOException {
+        return check(classes, signature, ignores, 1, cache);
+    }
+
+    private static List<String> check(File classes, Map<String, Clazz> signature, int threads, CheckResultCache cache)
+            throws IOException {
+        return check(classes, signature, Collections.emptyList(), threads, cache);
+    }
+
+    private static List<String> check(
+            File classes, Map<String, Clazz> signature, Collection<String> ignores, int threads, CheckResultCache cache)
+            throws IOException {
+        final List<String> errors = new ArrayList<>();
+        Set<String> ignoredPackages = new HashSet<>(Arrays.asList("org.objectweb.*", "org.codehaus.*"));
+        ignoredPackages.addAll(ignores);
+        SignatureChecker checker = new SignatureChecker(signature, ignoredPackages, new TestLogger() {
+            @Override
+            public void error(String message) {
+                errors.add(message);
+            }
+        });
+        checker.setSourcePath(Collections.emptyList());
+        checker.setThreads(threads);
+        checker.setResultCache(cache);
+        checker.process(classes);
+        assertEquals(!errors.isEmpty(), checker.isSignatureBroken());
+        return errors;
+    }
+
     static class TestLogger implements Logger {
         @Override
         public void debug(String message) {}
@@ -0,0 +1,176 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2012 Codehaus.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.codehaus.mojo.animal_sniffer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+public class SignatureIndexTest extends TestCase {
+    private File indexDirectory;
+
+    @Override
+    protected void setUp() throws Exception {
+        indexDirectory = Files.createTempDirectory("animal-sniffer-index").toFile();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        File[] files = indexDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Files.delete(file.toPath());
+            }
+        }
+        Files.delete(indexDirectory.toPath());
+    }
+
+    public void testMatchesLoadedSignature() throws Exception {
+        Map<String, Clazz> expected;
+        try (InputStream in = getClass().getResourceAsStream("/java16-1.1.signature")) {
+            expected = SignatureChecker.loadClasses(in);
+        }
+        File indexFile = new File(indexDirectory, "java16.idx");
+        try (InputStream in = getClass().getResourceAsStream("/java16-1.1.signature")) {
+            SignatureIndex.write(in, indexFile);
+        }
+
+        SignatureIndex index = SignatureIndex.open(indexFile);
+        assertEquals(expected.size(), index.size());
+        assertNull(index.get("does/not/Exist"));
+        assertFalse(index.containsKey("does/not/Exist"));
+        assertNull(index.get("java/lang/Strin"));
+        assertNull(index.get(""));
+
+        Clazz string = index.get("java/lang/String");
+        assertNotNull(string);
+        assertSame(string, index.get("java/lang/String"));
+        assertTrue(index.containsKey("java/lang/String"));
+        assertEquals("java/lang/Object", string.getSuperClass());
+
+        Set<String> seen = new HashSet<>();
+        for (Map.Entry<String, Clazz> entry : index.entrySet()) {
+            Clazz actual = entry.getValue();
+            Clazz c = expected.get(entry.getKey());
+            assertNotNull(entry.getKey(), c);
+            assertEquals(c.getName(), actual.getName());
+            assertEquals(c.getSuperClass(), actual.getSuperClass());
+            assertEquals(Arrays.asList(c.getSuperInterfaces()), Arrays.asList(actual.getSuperInterfaces()));
+            assertEquals(c.getSignatures(), actual.getSignatures());
+            seen.add(entry.getKey());
+        }
+        assertEquals(expected.keySet(), seen);
+    }
+
+    public void testForSignatureReusesIndexFile() throws Exception {
+        File signature = new File(indexDirectory, "java16.signature");
+        try (InputStream in = getClass().getResourceAsStream("/java16-1.1.signature")) {
+            Files.copy(in, signature.toPath());
+        }
+
+        SignatureIndex first = SignatureIndex.forSignature(signature, indexDirectory);
+        assertNotNull(first.get("java/lang/Object"));
+        String[] indexFiles = indexDirectory.list((dir, name) -> name.endsWith(".idx"));
+        assertEquals(1, indexFiles.length);
+
+        SignatureIndex second = SignatureIndex.forSignature(signature, indexDirectory);
+        assertEquals(first.size(), second.size());
+        assertEquals(1, indexDirectory.list((dir, name) -> name.endsWith(".idx")).length);
+    }
+
+    public void testForSignatureRewritesUnreadableIndexFile() throws Exception {
+        File signature = new File(indexDirectory, "java16.signature");
+        try (InputStream in = getClass().getResourceAsStream("/java16-1.1.signature")) {
+            Files.copy(in, signature.toPath());
+        }
+        SignatureIndex.forSignature(signature, indexDirectory);
+        File indexFile = indexDirectory.listFiles((dir, name) -> name.endsWith(".idx"))[0];
+        assertTrue(indexFile.getName(), indexFile.getName().endsWith(".v1.idx"));
+        byte[] written = Files.readAllBytes(indexFile.toPath());
+
+        // another version, a cut short file and garbage are all written again
+        byte[] otherVersion = written.clone();
+        otherVersion[5]++;
+        for (byte[] content :
+                Arrays.asList(otherVersion, Arrays.copyOf(written, 100), Arrays.copyOf(written, 10), new byte[0])) {
+            Files.write(indexFile.toPath(), content);
+            SignatureIndex index = SignatureIndex.forSignature(signature, indexDirectory);
+            assertNotNull(index.get("java/lang/Object"));
+            assertTrue(Arrays.equals(written, Files.readAllBytes(indexFile.toPath())));
+        }
+    }
+
+    public void testWriteKeepsOnlyTheLastDefinition() throws Exception {
+        Map<String, Clazz> classes;
+        try (InputStream in = getClass().getResourceAsStream("/java16-1.1.signature")) {
+            classes = SignatureChecker.loadClasses(in);
+        }
+        File indexFile = new File(indexDirectory, "java16.idx");
+        SignatureIndex.write(new ByteArrayInputStream(signature(classes.values())), indexFile);
+        byte[] written = Files.readAllBytes(indexFile.toPath());
+
+        // writing it again replaces the file
+        SignatureIndex.write(new ByteArrayInputStream(signature(classes.values())), indexFile);
+        assertTrue(Arrays.equals(written, Files.readAllBytes(indexFile.toPath())));
+        assertEquals(Collections.singletonList("java16.idx"), Arrays.asList(indexDirectory.list()));
+
+        // the records of classes defined twice are not kept
+        List<Clazz> twice = new ArrayList<>(classes.values());
+        twice.addAll(classes.values());
+        SignatureIndex.write(new ByteArrayInputStream(signature(twice)), indexFile);
+        assertTrue(Arrays.equals(written, Files.readAllBytes(indexFile.toPath())));
+
+        Clazz first = new Clazz("a/A", Collections.singleton("run()V"), "a/Base", new String[0]);
+        Clazz last = new Clazz("a/A", Collections.singleton("call()V"), "java/lang/Object", new String[0]);
+        SignatureIndex.write(new ByteArrayInputStream(signature(Arrays.asList(first, last))), indexFile);
+        SignatureIndex index = SignatureIndex.open(indexFile);
+        assertEquals(1, index.size());
+        assertEquals("java/lang/Object", index.get("a/A").getSuperClass());
+        assertEquals(Collections.singleton("call()V"), index.get("a/A").getSignatures());
+    }
+
+    private static byte[] signature(Collection<Clazz> classes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (SignatureWriter writer = SignatureWriter.create(out, SignatureWriter.LEGACY_FORMAT)) {
+            for (Clazz clazz : classes) {
+                writer.write(clazz);
+            }
+        }
+        return out.toByteArray();
+    }
+}
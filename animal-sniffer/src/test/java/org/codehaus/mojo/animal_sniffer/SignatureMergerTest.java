@@ -0,0 +1,194 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2012 Codehaus.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.codehaus.mojo.animal_sniffer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.zip.GZIPInputStream;
+
+import junit.framework.TestCase;
+
+public class SignatureMergerTest extends TestCase {
+
+    public void testMerge() throws IOException {
+        byte[] a = signature(SignatureWriter.LEGACY_FORMAT, clazz("a/A", "run()V"), clazz("c/C", "run()V"));
+        byte[] b = signature(SignatureWriter.COMPACT_FORMAT, clazz("a/A", "call()V"), clazz("b/B", "run()V"));
+        byte[] c = signature(SignatureWriter.LEGACY_FORMAT, clazz("a/A", "stop()V"), clazz("d/D", "run()V"));
+
+        InputStream[] in = {new ByteArrayInputStream(a), new ByteArrayInputStream(b), new ByteArrayInputStream(c)};
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new SignatureMerger(in, out, SignatureWriter.COMPACT_FORMAT, new SignatureCheckerTest.TestLogger());
+
+        Map<String, Clazz> classes = SignatureChecker.loadClasses(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(Arrays.asList("a/A", "b/B", "c/C", "d/D"), new ArrayList<>(new TreeSet<>(classes.keySet())));
+        assertEquals(
+                Arrays.asList("stop()V", "call()V", "run()V"),
+                new ArrayList<>(classes.get("a/A").getSignatures()));
+    }
+
+    public void testMerge_Unsorted() throws IOException {
+        byte[] a = signature(SignatureWriter.COMPACT_FORMAT, clazz("a/A", "run()V"));
+        byte[] b = signature(SignatureWriter.COMPACT_FORMAT, clazz("b/B", "run()V"), clazz("a/A", "call()V"));
+        try {
+            new SignatureMerger(
+                    new InputStream[] {new ByteArrayInputStream(a), new ByteArrayInputStream(b)},
+                    new ByteArrayOutputStream(),
+                    SignatureWriter.COMPACT_FORMAT,
+                    new SignatureCheckerTest.TestLogger());
+            fail();
+        } catch (IOException e) {
+            assertEquals(
+                    "Signature 2 is not sorted by class name: a/A follows b/B;"
+                            + " build it again with animal-sniffer 1.28 or later",
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Verifies that a legacy signature written with bounded memory forgets the classes written, so that the strings
+     * they share are written again instead of referring to the objects kept by the stream.
+     */
+    public void testMerge_MaximumClassesInMemoryLegacy() throws IOException {
+        // the classes of each input share the instance of their super class name
+        byte[] a = signature(SignatureWriter.LEGACY_FORMAT, classes("a", 20));
+        byte[] b = signature(SignatureWriter.LEGACY_FORMAT);
+
+        assertEquals(1, occurrences(merge(a, b, SignatureWriter.LEGACY_FORMAT, 0, null), "java/lang/Object"));
+        byte[] bounded = merge(a, b, SignatureWriter.LEGACY_FORMAT, 4, null);
+        assertEquals(5, occurrences(bounded, "java/lang/Object"));
+        assertEquals(
+                20,
+                SignatureChecker.loadClasses(new ByteArrayInputStream(bounded)).size());
+    }
+
+    /**
+     * Verifies that a compact signature written with bounded memory keeps its records in a temporary file until the
+     * pool is written.
+     */
+    public void testMerge_MaximumClassesInMemoryCompact() throws IOException {
+        byte[] a = signature(SignatureWriter.COMPACT_FORMAT, classes("a", 10));
+        byte[] b = signature(SignatureWriter.COMPACT_FORMAT, classes("b", 10));
+        File temporaryDirectory =
+                Files.createTempDirectory("animal-sniffer-merge").toFile();
+        try {
+            List<String> spilled = new ArrayList<>();
+            ByteArrayOutputStream out = new ByteArrayOutputStream() {
+                @Override
+                public synchronized void write(byte[] b, int off, int len) {
+                    if (spilled.isEmpty()) {
+                        // the signature is only written once all classes were merged
+                        Collections.addAll(spilled, temporaryDirectory.list());
+                    }
+                    super.write(b, off, len);
+                }
+            };
+            new SignatureMerger(
+                    new InputStream[] {new ByteArrayInputStream(a), new ByteArrayInputStream(b)},
+                    out,
+                    SignatureWriter.COMPACT_FORMAT,
+                    4,
+                    temporaryDirectory,
+                    new SignatureCheckerTest.TestLogger());
+
+            assertEquals(1, spilled.size());
+            assertTrue(spilled.get(0), spilled.get(0).endsWith(".records"));
+            assertEquals(0, temporaryDirectory.list().length);
+            assertEquals(
+                    20,
+                    SignatureChecker.loadClasses(new ByteArrayInputStream(out.toByteArray()))
+                            .size());
+        } finally {
+            Files.delete(temporaryDirectory.toPath());
+        }
+    }
+
+    private static byte[] merge(byte[] a, byte[] b, int formatVersion, int maximumClassesInMemory, File directory)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new SignatureMerger(
+                new InputStream[] {new ByteArrayInputStream(a), new ByteArrayInputStream(b)},
+                out,
+                formatVersion,
+                maximumClassesInMemory,
+                directory,
+                new SignatureCheckerTest.TestLogger());
+        return out.toByteArray();
+    }
+
+    /**
+     * Counts how often the given string occurs in the uncompressed legacy signature.
+     */
+    private static int occurrences(byte[] signature, String s) throws IOException {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(signature))) {
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                data.write(buffer, 0, n);
+            }
+        }
+        String text = new String(data.toByteArray(), StandardCharsets.ISO_8859_1);
+        int count = 0;
+        for (int i = text.indexOf(s); i != -1; i = text.indexOf(s, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    private static Clazz[] classes(String pkg, int count) {
+        Clazz[] classes = new Clazz[count];
+        for (int i = 0; i < count; i++) {
+            classes[i] = clazz(String.format("%s/C%02d", pkg, i), "run()V");
+        }
+        return classes;
+    }
+
+    private static Clazz clazz(String name, String signature) {
+        Clazz clazz = new Clazz(name, "java/lang/Object", new String[0]);
+        clazz.getSignatures().add(signature);
+        return clazz;
+    }
+
+    private static byte[] signature(int formatVersion, Clazz... classes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (SignatureWriter writer = SignatureWriter.create(out, formatVersion)) {
+            for (Clazz clazz : classes) {
+                writer.write(clazz);
+            }
+        }
+        return out.toByteArray();
+    }
+}
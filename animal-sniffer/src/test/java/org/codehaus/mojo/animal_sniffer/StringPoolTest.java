@@ -0,0 +1,86 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2012 Codehaus.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.codehaus.mojo.animal_sniffer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class StringPoolTest extends TestCase {
+
+    public void testIntern() {
+        StringPool pool = new StringPool();
+        String a = new String("toString()Ljava/lang/String;");
+        String b = new String("toString()Ljava/lang/String;");
+        assertSame(a, pool.intern(a));
+        assertSame(a, pool.intern(b));
+        assertNull(pool.intern((String) null));
+        assertEquals(1, pool.size());
+    }
+
+    /**
+     * Verifies that the member signatures of the bundled signature loaded with a {@link StringPool} are the canonical
+     * instances of the pool, so that equal signatures of different classes are held once.
+     */
+    public void testSharedMembers() throws IOException {
+        Map<String, Clazz> plain = load(null);
+        StringPool pool = new StringPool();
+        Map<String, Clazz> pooled = load(pool);
+        assertEquals(plain.keySet(), pooled.keySet());
+        for (Map.Entry<String, Clazz> entry : plain.entrySet()) {
+            assertEquals(
+                    entry.getValue().getSignatures(), pooled.get(entry.getKey()).getSignatures());
+        }
+
+        for (Clazz clazz : pooled.values()) {
+            for (String signature : clazz.getSignatures()) {
+                assertSame(signature, pool.intern(new String(signature)));
+            }
+        }
+        assertSame(
+                member(pooled.get("java/lang/Object"), "toString()Ljava/lang/String;"),
+                member(pooled.get("java/lang/String"), "toString()Ljava/lang/String;"));
+    }
+
+    private static String member(Clazz clazz, String signature) {
+        assertNotNull(clazz);
+        for (String s : clazz.getSignatures()) {
+            if (s.equals(signature)) {
+                return s;
+            }
+        }
+        fail(clazz.getName() + " has no member " + signature);
+        return null;
+    }
+
+    private Map<String, Clazz> load(StringPool pool) throws IOException {
+        try (InputStream in = getClass().getResourceAsStream("/java16-1.1.signature")) {
+            assertNotNull(in);
+            return SignatureChecker.loadClasses(in, pool);
+        }
+    }
+}